@@ -0,0 +1,51 @@
+package com.bx.calculator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 运算记录归档的编码和解码耗时（每次一块 HistoryArchive.BLOCK_SIZE 条），只在内存中读写，不含存储后端。
+// 样本为 5 个用户、300 种表达式，时间间隔为随机的几秒
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ArchiveBenchmark {
+    private final List<HistoryRecord> block = new ArrayList<>();
+    private byte[] encoded;
+
+    @Setup
+    public void setup() throws IOException {
+        Random random = new Random(1);
+        long time = 1_700_000_000_000L;
+        for (int i = 0; i < HistoryArchive.BLOCK_SIZE; i++) {
+            time += random.nextInt(5000);
+            block.add(new HistoryRecord("user" + i % 5, "√" + i % 300 + "+2*" + i % 17, random.nextGaussian() * 1e6, new Timestamp(time)));
+        }
+        encoded = encode();
+    }
+
+    @Benchmark
+    public byte[] encode() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(32 * HistoryArchive.BLOCK_SIZE);
+        HistoryArchive.Writer writer = new HistoryArchive.Writer(Channels.newChannel(out));
+        writer.write(block);
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    @Benchmark
+    public List<HistoryRecord> decode() throws IOException {
+        return new HistoryArchive.Reader(Channels.newChannel(new ByteArrayInputStream(encoded))).next();
+    }
+}
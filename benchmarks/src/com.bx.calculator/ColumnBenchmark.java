@@ -0,0 +1,59 @@
+package com.bx.calculator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 同一个表达式对整列输入求值：perRow 为逐行调用 ExpressionPlan.evaluate，columns 为 ColumnEvaluator 按列计算。
+// 以 -jvmArgsAppend -Dcalc.vector=false 运行可以得到不使用 Vector API 的标量循环的结果
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+@State(Scope.Benchmark)
+public class ColumnBenchmark {
+    @Param({"arithmetic", "sqrt", "power"})
+    public String corpus;
+
+    @Param({"1000", "1000000"})
+    public int rows;
+
+    private ExpressionPlan plan;
+    private double[] x;
+    private double[] y;
+
+    @Setup
+    public void setup() {
+        plan = Model.compile(switch (corpus) {
+            case "sqrt" -> "√(x*x+y*y)/2";
+            case "power" -> "x^y+x^2";
+            default -> "(x+y)*(x-y)/3+x*0.5";
+        });
+        Random random = new Random(42);
+        x = new double[rows];
+        y = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            x[i] = random.nextDouble() * 100;
+            y[i] = random.nextDouble() * 4;
+        }
+    }
+
+    @Benchmark
+    public double[] columns() {
+        return ColumnEvaluator.evaluate(plan, x, y);
+    }
+
+    @Benchmark
+    public double[] perRow() {
+        double[] out = new double[rows];
+        double[] arguments = new double[2];
+        for (int i = 0; i < rows; i++) {
+            arguments[0] = x[i];
+            arguments[1] = y[i];
+            out[i] = plan.evaluate(arguments);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,79 @@
+package com.bx.calculator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigInteger;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+// 阶乘和进制转换的耗时
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversionBenchmark {
+    @State(Scope.Benchmark)
+    public static class FactorialInput {
+        @Param({"7", "20", "1000", "10000"})
+        public String n;
+    }
+
+    @State(Scope.Benchmark)
+    public static class RadixInput {
+        @Param({"42", "2147483647"})
+        public String decimal;
+
+        private String binary;
+
+        @Setup
+        public void setup() {
+            binary = Model.toBinary(decimal);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class LargeRadixInput {
+        @Param({"4000", "400000"})
+        public int bits;
+
+        private String decimal;
+
+        @Setup
+        public void setup() {
+            decimal = new BigInteger(bits, new Random(42)).toString();
+        }
+    }
+
+    @Benchmark
+    public BigInteger factorial(FactorialInput input) {
+        return Model.performFactorial(input.n);
+    }
+
+    // 绕过缓存，每次重新计算
+    @Benchmark
+    public BigInteger factorialUncached(FactorialInput input) {
+        return Factorials.splitRecursive(Integer.parseInt(input.n));
+    }
+
+    @Benchmark
+    public String decimalToBinary(RadixInput input) {
+        return Model.toBinary(input.decimal);
+    }
+
+    @Benchmark
+    public String binaryToDecimal(RadixInput input) {
+        return Model.toDecimal(input.binary);
+    }
+
+    // 长整数转为十六进制，对照 JDK 的 BigInteger(String) 和 toString(radix)
+    @Benchmark
+    public String largeDecimalToHex(LargeRadixInput input) {
+        return RadixConverter.convert(input.decimal, 10, 16);
+    }
+
+    @Benchmark
+    public String largeDecimalToHexJdk(LargeRadixInput input) {
+        return new BigInteger(input.decimal).toString(16);
+    }
+}
@@ -0,0 +1,36 @@
+package com.bx.calculator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.concurrent.TimeUnit;
+
+// 任意精度模式的耗时，与 ExpressionBenchmark.calculate 和 scan 的 double 结果对比
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DecimalBenchmark {
+    @Param({"short", "nested", "chain", "sqrt", "power", "factorial", "formatted"})
+    public String corpus;
+
+    @Param({"16", "34", "100"})
+    public int digits;
+
+    private String expression;
+    private MathContext mathContext;
+
+    @Setup
+    public void setup() {
+        expression = ExpressionCorpus.get(corpus);
+        mathContext = Model.mathContext(digits);
+    }
+
+    @Benchmark
+    public BigDecimal calculateDecimal() {
+        return Model.calculateDecimal(expression, mathContext);
+    }
+}
@@ -0,0 +1,50 @@
+package com.bx.calculator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// 表达式求值各阶段的耗时：规范化、编译执行计划、直接扫描求值，以及 Model.calculate 的缓存路径
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ExpressionBenchmark {
+    @Param({"short", "nested", "chain", "sqrt", "power", "factorial", "formatted"})
+    public String corpus;
+
+    private String expression;  // 用户输入的原始表达式
+    private String normalized;  // 规范化之后的表达式
+
+    @Setup
+    public void setup() {
+        expression = ExpressionCorpus.get(corpus);
+        normalized = Model.normalize(expression);
+    }
+
+    // 完整的计算路径：规范化、查找缓存的执行计划并执行
+    @Benchmark
+    public double calculate() {
+        return Model.calculate(expression);
+    }
+
+    // 不使用计划缓存时的单遍扫描求值
+    @Benchmark
+    public double scan() {
+        return ExpressionScanner.local().evaluate(normalized);
+    }
+
+    // 计划缓存未命中时的编译开销
+    @Benchmark
+    public ExpressionPlan compile() {
+        return ExpressionPlan.compile(normalized);
+    }
+
+    // 移除空白字符和千位分隔符
+    @Benchmark
+    public String normalize() {
+        return Model.normalize(expression);
+    }
+}
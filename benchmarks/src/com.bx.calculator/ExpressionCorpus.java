@@ -0,0 +1,42 @@
+package com.bx.calculator;
+
+// 基准测试使用的表达式样本，覆盖界面上常见的几类输入
+final class ExpressionCorpus {
+    private ExpressionCorpus() {
+    }
+
+    // 按名称返回样本表达式，名称与基准测试的 @Param 取值一致
+    static String get(String name) {
+        return switch (name) {
+            case "short" -> "1+2*3";
+            case "nested" -> nested(32);
+            case "chain" -> chain(200);
+            case "sqrt" -> "√16+√25*√(9+7)-√2/√3+√(√81)";
+            case "power" -> "2^10+3^4*2^0.5-1.5^2.5/10^3";
+            case "factorial" -> "5!+10!-3!*4!+20!/(2!*6!)";
+            case "formatted" -> "1,234,567.89 + 2,000 * (3.5 - 1,000) / 4";  // 带空格和千位分隔符，需要规范化
+            default -> throw new IllegalArgumentException("未知的样本: " + name);
+        };
+    }
+
+    // 深度为 depth 的括号嵌套：((((1+2)*3)-4)/5)...
+    private static String nested(int depth) {
+        StringBuilder sb = new StringBuilder();
+        sb.append("(".repeat(depth)).append('1');
+        char[] operators = {'+', '*', '-', '/'};
+        for (int i = 0; i < depth; i++) {
+            sb.append(operators[i % operators.length]).append(i + 2).append(')');
+        }
+        return sb.toString();
+    }
+
+    // terms 个数字组成的四则运算长链
+    private static String chain(int terms) {
+        StringBuilder sb = new StringBuilder("1");
+        char[] operators = {'+', '-', '*', '/'};
+        for (int i = 1; i < terms; i++) {
+            sb.append(operators[i % operators.length]).append(i % 97 + 1).append('.').append(i % 10);
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,49 @@
+package com.bx.calculator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// 优化前后执行计划的耗时对比：optimize=false 为扫描得到的原始计划，true 为 PlanOptimizer 优化后的计划。
+// 不含变量的样本优化后只剩一个常量；含变量的样本只能做恒等式消除、强度削减和公共子表达式共享
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OptimizerBenchmark {
+    @Param({"power", "chain", "identities", "squares", "shared"})
+    public String corpus;
+
+    @Param({"false", "true"})
+    public boolean optimize;
+
+    private ExpressionPlan plan;
+    private final double[] arguments = {1.25, -3.5, 7.0};
+
+    @Setup
+    public void setup() {
+        plan = ExpressionPlan.compile(Model.normalize(expression(corpus)), optimize);
+    }
+
+    private static String expression(String corpus) {
+        return switch (corpus) {
+            case "identities" -> "a*1+b/1-(c-0)*1+a^1/2+b/8";
+            case "squares" -> "a^2+b^2+c^2-a^2*b^2/c^2";
+            case "shared" -> "(a+b*c)*(a+b*c)+√(a+b*c)/(a+b*c)-(a+b*c)^2";
+            default -> ExpressionCorpus.get(corpus);
+        };
+    }
+
+    @Benchmark
+    public double evaluate() {
+        return plan.variableCount() == 0 ? plan.interpret(null) : plan.evaluate(arguments);
+    }
+
+    // 编译耗时，包括优化
+    @Benchmark
+    public ExpressionPlan compile() {
+        return ExpressionPlan.compile(Model.normalize(expression(corpus)), optimize);
+    }
+}
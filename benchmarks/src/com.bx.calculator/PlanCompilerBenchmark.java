@@ -0,0 +1,46 @@
+package com.bx.calculator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// 第二层编译的收益：interpreted 为解释执行后缀指令，compiled 为 PlanCompiler 生成的 MethodHandle 树。
+// 样本都含变量，与工作表和按行计算的用法一致，不会被优化器折叠为常量
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PlanCompilerBenchmark {
+    @Param({"arithmetic", "sqrt", "power", "shared"})
+    public String corpus;
+
+    @Param({"interpreted", "compiled"})
+    public String tier;
+
+    private ExpressionPlan plan;
+    private boolean compiled;
+    private final double[] arguments = {1.25, -3.5};
+
+    @Setup
+    public void setup() {
+        plan = Model.compile(switch (corpus) {
+            case "sqrt" -> "√(x*x+y*y)/2";
+            case "power" -> "x^y+x^2";
+            case "shared" -> "(x+y*3)*(x+y*3)+√(x+y*3)/(x+y*3)";
+            default -> "(x+y)*(x-y)/3+x*0.5";
+        });
+        compiled = tier.equals("compiled");
+        if (compiled) {
+            while (!plan.isCompiled()) {
+                plan.evaluate(arguments);
+            }
+        }
+    }
+
+    @Benchmark
+    public double evaluate() {
+        return compiled ? plan.evaluate(arguments) : plan.interpret(arguments);
+    }
+}
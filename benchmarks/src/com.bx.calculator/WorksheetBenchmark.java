@@ -0,0 +1,45 @@
+package com.bx.calculator;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+// 工作表重新定义变量的耗时：chain 为 x0 <- x1 <- ... 的依赖链，逐层串行重算；
+// fanout 为全部依赖同一个变量的宽图，只有一层，可以并行重算
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class WorksheetBenchmark {
+    @Param({"chain", "fanout"})
+    public String shape;
+
+    @Param({"1000", "10000"})
+    public int size;
+
+    private Worksheet worksheet;
+    private int counter;
+
+    @Setup
+    public void setup() {
+        worksheet = new Worksheet();
+        worksheet.define("x0", "1");
+        for (int i = 1; i <= size; i++) {
+            worksheet.define("x" + i, shape.equals("chain") ? "x" + (i - 1) + "*2+1" : "x0*" + i + "+√(x0+" + i + ")");
+        }
+    }
+
+    // 修改根变量，重算所有依赖它的变量
+    @Benchmark
+    public double redefineRoot() {
+        return worksheet.define("x0", String.valueOf(counter++ & 1023));
+    }
+
+    // 修改一个没有被引用的变量，只重算它自己
+    @Benchmark
+    public double redefineLeaf() {
+        return worksheet.define("x" + size, "x" + (size - 1) + "+" + (counter++ & 1023));
+    }
+}
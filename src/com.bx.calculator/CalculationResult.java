@@ -0,0 +1,60 @@
+package com.bx.calculator;
+
+import java.math.BigDecimal;
+
+// 单个表达式的计算结果，出错时以错误信息代替异常返回
+public class CalculationResult {
+    private final String expression;    // 原始表达式
+    private final double result;    // 计算结果，出错时为 NaN
+    private final BigDecimal decimal;   // 任意精度模式下的结果，double 模式为 null
+    private final String error; // 错误信息，成功时为 null
+
+    private CalculationResult(String expression, double result, BigDecimal decimal, String error) {
+        this.expression = expression;
+        this.result = result;
+        this.decimal = decimal;
+        this.error = error;
+    }
+
+    public static CalculationResult success(String expression, double result) {
+        return new CalculationResult(expression, result, null, null);
+    }
+
+    public static CalculationResult success(String expression, BigDecimal result) {
+        return new CalculationResult(expression, result.doubleValue(), result, null);
+    }
+
+    public static CalculationResult failure(String expression, String error) {
+        return new CalculationResult(expression, Double.NaN, null, String.valueOf(error));    // 异常信息可能为 null
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    // 计算结果，任意精度模式下为最接近的 double，用于保存历史
+    public double getResult() {
+        return result;
+    }
+
+    public BigDecimal getDecimal() {
+        return decimal;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public boolean isError() {
+        return error != null;
+    }
+
+    // 与 Model.calculateExpression 的返回格式一致
+    @Override
+    public String toString() {
+        if (isError()) {
+            return "Error: " + error;
+        }
+        return decimal != null ? DecimalMath.format(decimal) : String.valueOf(result);
+    }
+}
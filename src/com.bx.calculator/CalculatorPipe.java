@@ -0,0 +1,247 @@
+package com.bx.calculator;
+
+import java.io.FileDescriptor;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.math.MathContext;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAdder;
+
+// 无界面的批量计算：从文件或标准输入逐行读取表达式，结果按输入顺序逐行写到标准输出，
+// 出错的表达式输出 "Error: 原因"，空行原样输出为空行。
+// 输入按行边界切成约 CHUNK_BYTES 的块，各块在线程池上并行计算，同时在途的块数有上限，内存占用与输入大小无关；
+// 文件按 MAP_BYTES 分段内存映射读取，标准输入按块读取。每块的结果编码后一次写入输出通道。
+// 不能使用变量（各块并行计算，没有先后顺序）。默认不使用执行计划缓存，输入中大量重复的表达式时可以用 --plan-cache 打开。
+// 结束时在标准错误输出中报告吞吐量
+public class CalculatorPipe {
+    private static final int CHUNK_BYTES = 1 << 20;    // 每块的目标字节数
+    private static final long MAP_BYTES = 1L << 28;    // 每次映射的文件字节数
+    private static final byte NEWLINE = '\n';
+
+    private final Model model;  // 需要记录历史时的业务逻辑，为 null 时不连接存储后端
+    private final Session session;
+    private final MathContext mathContext;
+    private final boolean planCache;    // 是否经过执行计划缓存
+    private final ExecutorService executor;
+    private final int maxInFlight;
+    private final Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+    private final WritableByteChannel output;
+    private final LongAdder expressions = new LongAdder(); // 已计算的表达式个数
+
+    private CalculatorPipe(Model model, Session session, boolean planCache, WritableByteChannel output) {
+        this.model = model;
+        this.session = session;
+        this.mathContext = session.getMathContext();
+        this.planCache = planCache;
+        this.output = output;
+        int threads = Integer.getInteger("calc.pipe.threads", Runtime.getRuntime().availableProcessors());
+        this.executor = Executors.newFixedThreadPool(threads, r -> {
+            Thread thread = new Thread(r, "pipe-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.maxInFlight = threads * 2;
+    }
+
+    // 入口：java -jar calcpro.jar --pipe [文件] [--precision 有效位数] [--user 用户名 --password 密码] [--no-history] [--plan-cache]。
+    // 省略文件时读取标准输入；指定用户时结果记录到该用户的历史中，--no-history 时完全不连接存储后端
+    public static void run(String[] args) throws IOException {
+        String file = null;
+        String username = null;
+        String password = null;
+        boolean history = true;
+        boolean planCache = false;
+        Session session = new Session();
+        for (int i = 1; i < args.length; i++) {
+            switch (args[i]) {
+                case "--precision" -> session.setMathContext(Model.mathContext(Integer.parseInt(args[++i])));
+                case "--user" -> username = args[++i];
+                case "--password" -> password = args[++i];
+                case "--no-history" -> history = false;
+                case "--plan-cache" -> planCache = true;
+                default -> file = args[i];
+            }
+        }
+
+        Model model = null;
+        if (history && username != null) {
+            model = new Model();
+            if (model.loginUser(session, username, password) == null) {
+                model.close();
+                throw new IllegalArgumentException("登录失败！请检查用户名和密码。");
+            }
+        }
+        long start = System.nanoTime();
+        CalculatorPipe pipe = new CalculatorPipe(model, session, planCache, new FileOutputStream(FileDescriptor.out).getChannel());
+        try {
+            if (file == null) {
+                pipe.processStream(new FileInputStream(FileDescriptor.in).getChannel());  // 不经过 System.in 的缓冲；标准输入可能是管道，不能映射
+            } else {
+                try (FileChannel channel = FileChannel.open(Path.of(file))) {
+                    pipe.processMapped(channel);
+                }
+            }
+        } finally {
+            pipe.executor.shutdownNow();
+            if (model != null) {
+                model.close();  // 写完尚未保存的运算记录
+            }
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        long count = pipe.expressions.sum();
+        System.err.printf("已计算 %d 个表达式，用时 %.3f 秒，%.0f 个/秒%n", count, seconds, count / seconds);
+    }
+
+    // 分段映射文件，每段内按行边界切块；跨越段尾的行从下一段的开头重新映射
+    private void processMapped(FileChannel channel) throws IOException {
+        long size = channel.size();
+        long position = 0;
+        while (position < size) {
+            long length = Math.min(MAP_BYTES, size - position);
+            boolean last = position + length == size;
+            ByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            int from = 0;
+            while (from < length) {
+                int to = chunkEnd(mapped, from, (int) length, last);
+                if (to < 0) {
+                    break;  // 段尾不完整的行留给下一段
+                }
+                submit(mapped.slice(from, to - from));
+                from = to;
+            }
+            if (from == 0 && !last) {
+                throw new IOException("单行长度超过 " + MAP_BYTES + " 字节");
+            }
+            position += from;
+        }
+        drain();
+    }
+
+    // 从 from 开始约 CHUNK_BYTES 字节之后的第一个行尾（不含换行符之后的内容），没有完整的行时返回 -1；
+    // last 为 true 时输入在 limit 处结束，最后一行可以没有换行符
+    private static int chunkEnd(ByteBuffer buffer, int from, int limit, boolean last) {
+        int target = (int) Math.min(limit, (long) from + CHUNK_BYTES);
+        for (int i = Math.max(from, target - 1); i < limit; i++) {
+            if (buffer.get(i) == NEWLINE) {
+                return i + 1;
+            }
+        }
+        if (last) {
+            return limit;
+        }
+        for (int i = target - 2; i >= from; i--) {  // 目标位置之后没有换行符，退回到之前的行尾
+            if (buffer.get(i) == NEWLINE) {
+                return i + 1;
+            }
+        }
+        return -1;
+    }
+
+    // 按块读取标准输入，上一块末尾不完整的行移到下一块的开头
+    private void processStream(ReadableByteChannel channel) throws IOException {
+        byte[] carry = new byte[0];
+        boolean end = false;
+        while (!end) {
+            ByteBuffer buffer = ByteBuffer.allocate(Math.max(CHUNK_BYTES, carry.length * 2));
+            buffer.put(carry);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    end = true;
+                    break;
+                }
+            }
+            int length = buffer.position();
+            int to = chunkEnd(buffer, 0, length, end);
+            if (to < 0) {
+                carry = Arrays.copyOf(buffer.array(), length);  // 一块中没有完整的行，扩大缓冲区继续读
+                continue;
+            }
+            if (to > 0) {
+                submit(ByteBuffer.wrap(buffer.array(), 0, to));
+            }
+            carry = Arrays.copyOfRange(buffer.array(), to, length);
+        }
+        drain();
+    }
+
+    // 提交一块，在途的块数达到上限时先按顺序写出最早的结果
+    private void submit(ByteBuffer chunk) throws IOException {
+        if (pending.size() >= maxInFlight) {
+            write(pending.removeFirst());
+        }
+        pending.addLast(executor.submit(() -> evaluate(chunk)));
+    }
+
+    private void drain() throws IOException {
+        while (!pending.isEmpty()) {
+            write(pending.removeFirst());
+        }
+    }
+
+    private void write(Future<ByteBuffer> future) throws IOException {
+        ByteBuffer result;
+        try {
+            result = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("计算被中断", e);
+        } catch (ExecutionException e) {
+            throw new IOException("计算失败", e.getCause());
+        }
+        while (result.hasRemaining()) {
+            output.write(result);
+        }
+    }
+
+    // 计算一块中的每一行，返回编码后的输出；需要记录历史时整块的结果一次提交给写入器
+    private ByteBuffer evaluate(ByteBuffer chunk) {
+        StringBuilder out = new StringBuilder(chunk.remaining());
+        List<CalculationResult> results = model == null ? null : new ArrayList<>();
+        byte[] line = new byte[256];
+        int count = 0;
+        int start = 0;
+        int limit = chunk.limit();
+        while (start < limit) {
+            int end = start;
+            while (end < limit && chunk.get(end) != NEWLINE) {
+                end++;
+            }
+            int length = end > start && chunk.get(end - 1) == '\r' ? end - start - 1 : end - start;
+            if (length > 0) {
+                if (line.length < length) {
+                    line = new byte[Math.max(length, line.length * 2)];
+                }
+                chunk.get(start, line, 0, length);
+                String expression = new String(line, 0, length, StandardCharsets.UTF_8);
+                CalculationResult result = planCache ? Model.evaluate(expression, mathContext) : Model.evaluateOnce(expression, mathContext);
+                out.append(result);
+                if (results != null) {
+                    results.add(result);
+                }
+                count++;
+            }
+            out.append('\n');
+            start = end + 1;
+        }
+        if (results != null) {
+            model.saveCalculationsToDatabase(session, results);
+        }
+        expressions.add(count);
+        return ByteBuffer.wrap(out.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
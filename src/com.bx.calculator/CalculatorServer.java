@@ -0,0 +1,247 @@
+package com.bx.calculator;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+// 无界面的计算服务：基于行的 TCP 协议，每个连接运行在一个虚拟线程上并持有自己的会话。
+// 请求为一行命令，响应以 OK 或 ERR 开头：
+//   LOGIN <用户名> <密码>     登录，之后的计算会记录到该用户的历史中
+//   LOGOUT                    退出登录
+//   PRECISION <有效位数>      切换为任意精度计算，0 表示 double
+//   EVAL <表达式>             计算表达式，表达式可以引用本连接定义的变量
+//   EVAL <名称> = <表达式>    定义变量，依赖它的变量随之重算
+//   UNSET <名称>              删除变量的定义
+//   VARS                      本连接定义的变量，先返回 "OK <个数>"，随后每行一个变量
+//   BIN <十进制数>            转二进制，数字可带 0x、0o、0b 前缀
+//   DEC <二进制数>            转十进制，数字可带 0x、0o、0b 前缀
+//   HEX <十进制数>            转十六进制
+//   OCT <十进制数>            转八进制
+//   RADIX <源进制> <目标进制> <数字>   任意进制（2~36）转换，数字长度不限，可带小数部分
+//   HISTORY [条数]            当前用户最近的运算记录，先返回 "OK <条数>"，随后每行一条记录
+//   STATS                     吞吐量与延迟统计
+//   QUIT                      关闭连接
+public class CalculatorServer implements AutoCloseable {
+    private static final int DEFAULT_HISTORY_LIMIT = 20;
+    private static final int MAX_HISTORY_LIMIT = 1000;
+
+    private final Model model;
+    private final ServerSocket serverSocket;
+    private final LatencyHistogram latency = new LatencyHistogram();
+    private final ScheduledExecutorService reporter = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "server-stats");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final long startNanos = System.nanoTime();
+    private long lastReportCount;   // 定时报告的窗口起点，只由 reporter 线程读写
+    private long lastReportNanos = startNanos;
+
+    public CalculatorServer(Model model, int port) throws IOException {
+        this.model = model;
+        this.serverSocket = new ServerSocket(port);
+    }
+
+    // 启动服务器的入口：java -jar calcpro.jar --server [端口]
+    public static void run(String[] args) throws IOException {
+        int port = args.length > 1 ? Integer.parseInt(args[1]) : 9090;
+        Model model = new Model();
+        CalculatorServer server = new CalculatorServer(model, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            model.close();
+        }));
+        try {
+            System.out.println("计算服务已启动，端口 " + port);
+            server.serve();
+        } finally {
+            server.close();
+        }
+    }
+
+    // 接受连接直到服务器关闭，每个连接交给一个新的虚拟线程处理
+    public void serve() throws IOException {
+        long interval = Long.getLong("calc.server.reportSeconds", 10L);
+        reporter.scheduleAtFixedRate(() -> System.out.println(periodicReport()), interval, interval, TimeUnit.SECONDS);
+        while (!serverSocket.isClosed()) {
+            Socket socket;
+            try {
+                socket = serverSocket.accept();
+            } catch (IOException e) {
+                if (serverSocket.isClosed()) {
+                    return;
+                }
+                throw e;
+            }
+            Thread.ofVirtual().name("client-", 0).start(() -> handle(socket));
+        }
+    }
+
+    private void handle(Socket socket) {
+        try (socket;
+             BufferedReader reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+             BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8))) {
+            Session session = new Session();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long start = System.nanoTime();
+                boolean open = dispatch(session, line.trim(), writer);
+                writer.flush();
+                latency.record(System.nanoTime() - start);
+                if (!open) {
+                    return;
+                }
+            }
+        } catch (IOException e) {
+            // 客户端断开连接
+        }
+    }
+
+    // 处理一条命令，返回 false 表示关闭连接
+    private boolean dispatch(Session session, String line, BufferedWriter writer) throws IOException {
+        int space = line.indexOf(' ');
+        String command = (space < 0 ? line : line.substring(0, space)).toUpperCase();
+        String argument = space < 0 ? "" : line.substring(space + 1).trim();
+        switch (command) {
+            case "LOGIN" -> {
+                String[] parts = argument.split("\\s+");
+                boolean ok = parts.length == 2 && model.loginUser(session, parts[0], parts[1]) != null;
+                respond(writer, ok, ok ? parts[0] : "用户名或密码错误");
+            }
+            case "LOGOUT" -> {
+                model.logout(session);
+                respond(writer, true, "");
+            }
+            case "PRECISION" -> {
+                try {
+                    session.setMathContext(Model.mathContext(Integer.parseInt(argument)));
+                    respond(writer, true, session.getMathContext() == null ? "double" : argument);
+                } catch (NumberFormatException e) {
+                    respond(writer, false, "有效位数必须是整数");
+                }
+            }
+            case "EVAL" -> {
+                String result = model.calculateExpression(session, argument);
+                boolean ok = !result.startsWith("Error: ");
+                respond(writer, ok, ok ? result : result.substring("Error: ".length()));
+            }
+            case "BIN" -> convert(session, writer, argument, 10, 2);
+            case "DEC" -> convert(session, writer, argument, 2, 10);
+            case "HEX" -> convert(session, writer, argument, 10, 16);
+            case "OCT" -> convert(session, writer, argument, 10, 8);
+            case "RADIX" -> {
+                String[] parts = argument.split("\\s+", 3);
+                try {
+                    if (parts.length < 3) {
+                        respond(writer, false, "用法: RADIX <源进制> <目标进制> <数字>");
+                    } else {
+                        convert(session, writer, parts[2], Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+                    }
+                } catch (NumberFormatException e) {
+                    respond(writer, false, "进制必须是整数");
+                }
+            }
+            case "UNSET" -> {
+                if (session.getWorksheet().remove(argument)) {
+                    respond(writer, true, "");
+                } else {
+                    respond(writer, false, "未定义的变量: " + argument);
+                }
+            }
+            case "VARS" -> {
+                List<String> lines = session.getWorksheet().describe();
+                respond(writer, true, String.valueOf(lines.size()));
+                for (String variable : lines) {
+                    writer.write(variable);
+                    writer.newLine();
+                }
+            }
+            case "HISTORY" -> history(session, writer, argument);
+            case "STATS" -> respond(writer, true, report());
+            case "QUIT" -> {
+                respond(writer, true, "BYE");
+                return false;
+            }
+            default -> respond(writer, false, "未知命令: " + command);
+        }
+        return true;
+    }
+
+    private void convert(Session session, BufferedWriter writer, String argument, int fromBase, int toBase) throws IOException {
+        try {
+            respond(writer, true, model.convert(session, argument, fromBase, toBase));
+        } catch (NumberFormatException e) {
+            respond(writer, false, "错误的输入: " + e.getMessage());
+        }
+    }
+
+    private void history(Session session, BufferedWriter writer, String argument) throws IOException {
+        if (!session.isLoggedIn()) {
+            respond(writer, false, "请先登录");
+            return;
+        }
+        int limit = DEFAULT_HISTORY_LIMIT;
+        if (!argument.isEmpty()) {
+            try {
+                limit = Math.max(1, Math.min(MAX_HISTORY_LIMIT, Integer.parseInt(argument)));
+            } catch (NumberFormatException e) {
+                respond(writer, false, "条数必须是整数");
+                return;
+            }
+        }
+        List<HistoryRecord> records = model.loadHistoryPage(session, null, limit);
+        respond(writer, true, String.valueOf(records.size()));
+        for (HistoryRecord record : records) {
+            writer.write(record.getTimestamp() + "\t" + record.getExpression() + "\t" + record.getResult());
+            writer.newLine();
+        }
+    }
+
+    private static void respond(BufferedWriter writer, boolean ok, String message) throws IOException {
+        writer.write(ok ? "OK " : "ERR ");
+        writer.write(message.replace('\n', ' '));
+        writer.newLine();
+    }
+
+    // 统计信息（STATS 命令）：启动以来的平均每秒请求数和延迟分布，不影响定时报告的窗口
+    public String report() {
+        return format(latency.getCount(), startNanos, 0);
+    }
+
+    // 定时报告：自上次定时报告以来的每秒请求数，以及启动以来的延迟分布
+    private String periodicReport() {
+        long now = System.nanoTime();
+        long count = latency.getCount();
+        String report = format(count, lastReportNanos, lastReportCount);
+        lastReportCount = count;
+        lastReportNanos = now;
+        return report;
+    }
+
+    // since 和 sinceCount 为计算每秒请求数的窗口起点
+    private String format(long count, long since, long sinceCount) {
+        double seconds = (System.nanoTime() - since) / 1e9;
+        double rate = seconds > 0 ? (count - sinceCount) / seconds : 0;
+        return String.format("requests=%d requests/s=%.1f mean=%.3fms p50=%.3fms p99=%.3fms",
+                count, rate, latency.getMeanMillis(), latency.getPercentileMillis(50), latency.getPercentileMillis(99));
+    }
+
+    @Override
+    public void close() {
+        reporter.shutdownNow();
+        try {
+            serverSocket.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package com.bx.calculator;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+// 按列计算：同一个表达式对多组输入求值，例如表格中的一列或绘图的采样点。
+// 执行计划先转换为寄存器程序（常量折叠，重复的子表达式只算一次），再按块逐条指令对整块数据计算，
+// 每条指令是对数组的一次循环。启动时带 --add-modules jdk.incubator.vector 时加减乘除和开方使用 Vector API，
+// 否则以及乘方、阶乘等没有逐位一致的向量实现的运算使用标量循环；结果与 ExpressionPlan 逐行计算逐位相同。
+// 行数较多时拆分为多段，在 fork-join 线程池上并行计算
+public final class ColumnEvaluator {
+    private static final int CHUNK = 512;   // 每块的行数，一块的中间结果能放进缓存
+    private static final int PARALLEL_THRESHOLD = 1 << 15;  // 行数达到该值时并行计算
+    private static final int NONE = Integer.MIN_VALUE;  // 一元运算没有右操作数
+    static final Kernels SCALAR = new ScalarKernels();
+    private static final Kernels KERNELS = loadKernels();
+
+    // 对一段数组执行一种运算，a、b 从各自的偏移量开始，结果写入 out[0, length)
+    interface Kernels {
+        void unary(byte op, double[] a, int aOffset, double[] out, int length);
+
+        void binary(byte op, double[] a, int aOffset, double[] b, int bOffset, double[] out, int length);
+    }
+
+    // 寄存器程序。操作数大于等于 0 时为寄存器编号，小于 0 时为 -(列号 + 1)
+    private final byte[] ops;
+    private final int[] lefts;
+    private final int[] rights;
+    private final int[] targets;    // 每条指令写入的寄存器
+    private final double[] constants;   // 常量寄存器的值
+    private final boolean[] constant;   // 寄存器是否保存常量
+    private final int result;   // 结果所在的操作数
+
+    private ColumnEvaluator(Compiler compiler, int result) {
+        this.ops = Arrays.copyOf(compiler.ops, compiler.count);
+        this.lefts = Arrays.copyOf(compiler.lefts, compiler.count);
+        this.rights = Arrays.copyOf(compiler.rights, compiler.count);
+        this.targets = Arrays.copyOf(compiler.targets, compiler.count);
+        this.constants = Arrays.copyOf(compiler.constants, compiler.registers);
+        this.constant = Arrays.copyOf(compiler.constant, compiler.registers);
+        this.result = result;
+    }
+
+    // 以 columns 中与变量同名的列作为输入逐行计算，所有列的长度必须相同，结果的长度与列相同
+    public static double[] evaluate(ExpressionPlan plan, Map<String, double[]> columns) {
+        if (columns.isEmpty()) {
+            throw new IllegalArgumentException("没有数据列");
+        }
+        String[] names = plan.variables();
+        double[][] data = new double[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            data[i] = columns.get(names[i]);
+            if (data[i] == null) {
+                throw new IllegalArgumentException("缺少变量 " + names[i] + " 的数据列");
+            }
+        }
+        return evaluate(plan, columns.values().iterator().next().length, columns.values().toArray(new double[0][]), data);
+    }
+
+    // columns 与 plan.variables() 一一对应
+    public static double[] evaluate(ExpressionPlan plan, double[]... columns) {
+        if (columns.length != plan.variableCount()) {
+            throw new IllegalArgumentException("数据列个数不匹配: 需要 " + plan.variableCount() + " 列，传入 " + columns.length + " 列");
+        }
+        if (columns.length == 0) {
+            throw new IllegalArgumentException("没有数据列");
+        }
+        return evaluate(plan, columns[0].length, columns, columns);
+    }
+
+    private static double[] evaluate(ExpressionPlan plan, int rows, double[][] all, double[][] data) {
+        for (double[] column : all) {
+            if (column.length != rows) {
+                throw new IllegalArgumentException("数据列的长度不一致");
+            }
+        }
+        Compiler compiler = new Compiler();
+        int result = plan.reduce(compiler);
+        ColumnEvaluator program = new ColumnEvaluator(compiler, result);
+        double[] out = new double[rows];
+        if (rows < PARALLEL_THRESHOLD) {
+            program.run(data, out, 0, rows);
+        } else {
+            // 每段是 CHUNK 的整数倍，段数约为核数的 4 倍以平衡负载
+            int parts = Math.min(rows / (PARALLEL_THRESHOLD / 4), Runtime.getRuntime().availableProcessors() * 4);
+            int partRows = ((rows + parts - 1) / parts + CHUNK - 1) / CHUNK * CHUNK;
+            IntStream.range(0, (rows + partRows - 1) / partRows).parallel()
+                    .forEach(part -> program.run(data, out, part * partRows, Math.min(rows, (part + 1) * partRows)));
+        }
+        return out;
+    }
+
+    // 是否使用 Vector API
+    public static boolean isVectorized() {
+        return KERNELS != SCALAR;
+    }
+
+    // 计算 [from, to) 范围内的行，每个线程使用自己的寄存器
+    private void run(double[][] data, double[] out, int from, int to) {
+        double[][] registers = new double[constant.length][];
+        for (int r = 0; r < registers.length; r++) {
+            registers[r] = new double[CHUNK];
+            if (constant[r]) {
+                Arrays.fill(registers[r], constants[r]);
+            }
+        }
+        for (int start = from; start < to; start += CHUNK) {
+            int length = Math.min(CHUNK, to - start);
+            for (int i = 0; i < ops.length; i++) {
+                int left = lefts[i];
+                int right = rights[i];
+                double[] target = registers[targets[i]];
+                if (right == NONE) {
+                    KERNELS.unary(ops[i], operand(left, registers, data), offset(left, start), target, length);
+                } else {
+                    KERNELS.binary(ops[i], operand(left, registers, data), offset(left, start),
+                            operand(right, registers, data), offset(right, start), target, length);
+                }
+            }
+            System.arraycopy(operand(result, registers, data), offset(result, start), out, start, length);
+        }
+    }
+
+    private static double[] operand(int operand, double[][] registers, double[][] data) {
+        return operand >= 0 ? registers[operand] : data[-operand - 1];
+    }
+
+    private static int offset(int operand, int start) {
+        return operand >= 0 ? 0 : start;
+    }
+
+    // 有 jdk.incubator.vector 模块时通过反射加载 VectorKernels，没有该模块时不会加载任何 Vector API 的类
+    private static Kernels loadKernels() {
+        if (!Boolean.parseBoolean(System.getProperty("calc.vector", "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return SCALAR;
+        }
+        try {
+            return (Kernels) Class.forName("com.bx.calculator.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            e.printStackTrace();
+            return SCALAR;
+        }
+    }
+
+    // 把执行计划归约为寄存器程序，常量子表达式在此折叠；归约时重复的子表达式是同一个操作数，只生成一条指令
+    private static final class Compiler implements ExpressionPlan.Reducer<Integer> {
+        private byte[] ops = new byte[16];
+        private int[] lefts = new int[16];
+        private int[] rights = new int[16];
+        private int[] targets = new int[16];
+        private int count;
+        private double[] constants = new double[16];
+        private boolean[] constant = new boolean[16];
+        private int registers;
+        private final Map<Long, Integer> constantRegisters = new HashMap<>();  // 按位相同的常量共用寄存器
+
+        @Override
+        public Integer constant(double value) {
+            return constantRegisters.computeIfAbsent(Double.doubleToRawLongBits(value), bits -> {
+                int register = allocate();
+                constants[register] = value;
+                constant[register] = true;
+                return register;
+            });
+        }
+
+        @Override
+        public Integer variable(int index) {
+            return -(index + 1);
+        }
+
+        @Override
+        public Integer unary(byte op, Integer operand) {
+            if (isConstant(operand)) {
+                return constant(ExpressionPlan.unary(op, constants[operand]));
+            }
+            return emit(op, operand, NONE);
+        }
+
+        @Override
+        public Integer binary(byte op, Integer left, Integer right) {
+            if (isConstant(left) && isConstant(right)) {
+                return constant(ExpressionPlan.binary(op, constants[left], constants[right]));
+            }
+            return emit(op, left, right);
+        }
+
+        private boolean isConstant(int operand) {
+            return operand >= 0 && constant[operand];
+        }
+
+        private int emit(byte op, int left, int right) {
+            if (count == ops.length) {
+                ops = Arrays.copyOf(ops, count * 2);
+                lefts = Arrays.copyOf(lefts, count * 2);
+                rights = Arrays.copyOf(rights, count * 2);
+                targets = Arrays.copyOf(targets, count * 2);
+            }
+            int target = allocate();
+            ops[count] = op;
+            lefts[count] = left;
+            rights[count] = right;
+            targets[count] = target;
+            count++;
+            return target;
+        }
+
+        private int allocate() {
+            if (registers == constants.length) {
+                constants = Arrays.copyOf(constants, registers * 2);
+                constant = Arrays.copyOf(constant, registers * 2);
+            }
+            return registers++;
+        }
+    }
+
+    // 标量循环，每个元素的运算与 ExpressionPlan 完全相同。常用运算各用一个循环，便于 JIT 自动向量化
+    private static final class ScalarKernels implements Kernels {
+        @Override
+        public void unary(byte op, double[] a, int aOffset, double[] out, int length) {
+            if (op == ExpressionPlan.SQRT) {
+                for (int i = 0; i < length; i++) {
+                    out[i] = Math.sqrt(a[aOffset + i]);
+                }
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                out[i] = ExpressionPlan.unary(op, a[aOffset + i]);
+            }
+        }
+
+        @Override
+        public void binary(byte op, double[] a, int aOffset, double[] b, int bOffset, double[] out, int length) {
+            switch (op) {
+                case ExpressionPlan.ADD -> {
+                    for (int i = 0; i < length; i++) {
+                        out[i] = a[aOffset + i] + b[bOffset + i];
+                    }
+                }
+                case ExpressionPlan.SUB -> {
+                    for (int i = 0; i < length; i++) {
+                        out[i] = a[aOffset + i] - b[bOffset + i];
+                    }
+                }
+                case ExpressionPlan.MUL -> {
+                    for (int i = 0; i < length; i++) {
+                        out[i] = a[aOffset + i] * b[bOffset + i];
+                    }
+                }
+                case ExpressionPlan.DIV -> {
+                    for (int i = 0; i < length; i++) {
+                        out[i] = a[aOffset + i] / b[bOffset + i];
+                    }
+                }
+                default -> {
+                    for (int i = 0; i < length; i++) {
+                        out[i] = ExpressionPlan.binary(op, a[aOffset + i], b[bOffset + i]);
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.bx.calculator;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+// 数据库连接池：限制连接总数，借出时校验连接是否可用（数据库重启后自动重连），
+// 每个连接缓存自己的 PreparedStatement，避免重复预编译相同的 SQL
+public class ConnectionPool implements AutoCloseable {
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long SOCKET_TIMEOUT_MILLIS = Long.getLong("calc.db.socketTimeoutMillis", 60000L);    // 单次读写的最长等待时间
+
+    private final String url;
+    private final Properties properties;    // 用户名、密码和超时设置
+    private final int maxSize;  // 最大连接数
+    private final long timeoutMillis;   // 借用连接和建立新连接的最长等待时间
+    private final Semaphore permits;
+    private final ConcurrentLinkedDeque<PooledConnection> idle = new ConcurrentLinkedDeque<>();
+    private volatile boolean closed;
+
+    private final LongAdder borrowed = new LongAdder();   // 借出次数
+    private final LongAdder timeouts = new LongAdder();   // 等待超时次数
+    private final LongAdder created = new LongAdder();    // 新建连接数
+    private final LongAdder discarded = new LongAdder();  // 校验失败被丢弃的连接数
+    private final LongAdder waitNanos = new LongAdder();  // 累计等待时间
+    private final AtomicLong maxWaitNanos = new AtomicLong();
+
+    public ConnectionPool(String url, String username, String password, int maxSize, long timeoutMillis) {
+        this.url = url;
+        this.properties = new Properties();
+        properties.setProperty("user", username);
+        properties.setProperty("password", password);
+        // 建立连接也受 timeoutMillis 限制，数据库主机不可达时报错而不是一直阻塞
+        properties.setProperty("connectTimeout", Long.toString(timeoutMillis));
+        properties.setProperty("socketTimeout", Long.toString(SOCKET_TIMEOUT_MILLIS));
+        this.maxSize = maxSize;
+        this.timeoutMillis = timeoutMillis;
+        this.permits = new Semaphore(maxSize, true);
+    }
+
+    // 借用一个可用的连接，使用完毕后调用 close 归还
+    public PooledConnection borrow() throws SQLException {
+        if (closed) {
+            throw new SQLException("连接池已关闭");
+        }
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                timeouts.increment();
+                throw new SQLTimeoutException("等待数据库连接超时（" + timeoutMillis + " ms）");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("等待数据库连接时被中断", e);
+        }
+        long waited = System.nanoTime() - start;
+        waitNanos.add(waited);
+        maxWaitNanos.accumulateAndGet(waited, Math::max);
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (pooled.isValid()) {
+                    borrowed.increment();
+                    return new PooledConnection(pooled.connection, pooled.statements);  // 每次借出使用新的句柄，旧句柄再次 close 不影响新的借用者
+                }
+                discarded.increment();
+                pooled.closeQuietly();
+            }
+            pooled = new PooledConnection(DriverManager.getConnection(url, properties), new HashMap<>());
+            created.increment();
+            borrowed.increment();
+            return pooled;
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        if (closed || !pooled.reset()) {
+            pooled.closeQuietly();
+        } else {
+            idle.offerFirst(pooled);    // 优先复用最近使用过的连接
+        }
+        permits.release();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getActiveCount() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public long getBorrowed() {
+        return borrowed.sum();
+    }
+
+    public long getTimeouts() {
+        return timeouts.sum();
+    }
+
+    public long getCreated() {
+        return created.sum();
+    }
+
+    public long getDiscarded() {
+        return discarded.sum();
+    }
+
+    // 平均等待连接的时间（毫秒）
+    public double getAverageWaitMillis() {
+        long count = borrowed.sum() + timeouts.sum();
+        return count == 0 ? 0 : waitNanos.sum() / 1e6 / count;
+    }
+
+    public double getMaxWaitMillis() {
+        return maxWaitNanos.get() / 1e6;
+    }
+
+    // 关闭所有空闲连接，正在使用的连接归还时关闭
+    @Override
+    public void close() {
+        closed = true;
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closeQuietly();
+        }
+    }
+
+    // 池中的连接，close 时归还给连接池而不是真正关闭
+    public final class PooledConnection implements AutoCloseable {
+        private final Connection connection;
+        private final Map<String, PreparedStatement> statements;  // 按 SQL 缓存的预编译语句，随连接在各次借用之间保留
+        private final AtomicBoolean returned = new AtomicBoolean(); // 是否已归还，重复 close 时不再归还
+
+        private PooledConnection(Connection connection, Map<String, PreparedStatement> statements) {
+            this.connection = connection;
+            this.statements = statements;
+        }
+
+        // 获取预编译语句，同一连接上相同的 SQL 只预编译一次；语句由连接池管理，调用方不要关闭
+        public PreparedStatement prepare(String sql) throws SQLException {
+            PreparedStatement statement = statements.get(sql);
+            if (statement == null || statement.isClosed()) {
+                statement = connection.prepareStatement(sql);
+                statements.put(sql, statement);
+            } else {
+                statement.clearParameters();
+                statement.clearBatch();
+            }
+            return statement;
+        }
+
+        // 底层连接，用于执行不需要缓存的语句
+        public Connection getConnection() {
+            return connection;
+        }
+
+        private boolean isValid() {
+            try {
+                return connection.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        // 归还前恢复自动提交，未提交的事务回滚；失败时返回 false，连接将被丢弃
+        private boolean reset() {
+            try {
+                if (!connection.getAutoCommit()) {
+                    connection.rollback();
+                    connection.setAutoCommit(true);
+                }
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        private void closeQuietly() {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+        }
+
+        @Override
+        public void close() {
+            if (returned.compareAndSet(false, true)) {
+                release(this);
+            }
+        }
+    }
+}
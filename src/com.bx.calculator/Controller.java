@@ -1,27 +1,65 @@
 package com.bx.calculator;
 
 import javax.swing.*;
-import java.util.List;
+import java.math.MathContext;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.function.Consumer;
 
-public class Controller {
-    private static Model model;
-    private static View view;
+// 界面事件的处理。计算、进制转换和所有访问存储后端的操作都交给后台线程执行，完成后回到事件分派线程更新界面，
+// 网络往返期间窗口不会失去响应。实时预览在输入停顿 PREVIEW_DELAY_MILLIS 后计算，新的输入会取消尚未完成的预览
+public final class Controller {
+    private static final int PREVIEW_DELAY_MILLIS = 150;
+    private static final int DASHBOARD_TOP = 10;    // 管理员面板列出的用户和表达式个数
+    private static final int DASHBOARD_DAYS = 30;   // 管理员面板显示最近多少天的运算次数
 
+    private final Model model;
+    private final View view;
+    private final Session session = new Session();  // 本窗口的用户会话
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(daemon("calc-worker"));    // 按提交顺序执行，会话状态的修改不会交错
+    private final ExecutorService previewer = Executors.newSingleThreadExecutor(daemon("calc-preview"));
+    private final Timer previewTimer = new Timer(PREVIEW_DELAY_MILLIS, e -> startPreview());  // 防抖：每次输入重新计时
+    private boolean livePreview = !"false".equals(System.getProperty("calc.livePreview"));
+    private String previewInput = "";
+    private Future<?> previewTask;  // 正在进行的预览
+    private int previewGeneration;  // 每次预览递增，过期的预览结果被丢弃；以上字段只在事件分派线程中访问
+
+    public Controller(Model model) {
+        this.model = model;
+        this.view = new View(this);
+        previewTimer.setRepeats(false);
+        view.setStorageReady(model.isStorageReady());
+        model.whenStorageReady(() -> SwingUtilities.invokeLater(this::storageReady));  // 用户和历史记录在存储后端就绪后可用
+    }
+
+    // 存储后端初始化完成：启用相关按钮，初始化失败时提示原因，之后的操作各自报告错误
+    private void storageReady() {
+        view.setStorageReady(true);
+        String error = model.getStorageError();
+        if (error != null) {
+            JOptionPane.showMessageDialog(view, "无法连接数据库，用户和历史记录功能可能不可用。\n" + error, "连接失败", JOptionPane.WARNING_MESSAGE);
+        }
+    }
+
+    // 先显示窗口，存储后端在后台连接和建表，未登录时的计算不需要等待数据库
     public static void main(String[] args) {
-        model = new Model();
-        view = new View();
-        view.setVisible(true);
+        Model model = new Model(true);
+        Runtime.getRuntime().addShutdownHook(new Thread(model::close)); // 退出前写完尚未保存的运算记录
+        new Controller(model).view.setVisible(true);
     }
 
     // 处理按钮点击事件的方法，根据不同的命令执行相应的操作
-    public static void handleButtonAction(String command, String inputText, View view) {
+    public void handleButtonAction(String command, String inputText) {
         switch (command) {
             case "用户" -> view.displayUserOptions();
             case "历史记录" -> {
-                List<String> history = model.loadHistory();
-                if (history != null) {
-                    view.displayHistory(history);
+                if (isLoggedIn()) {
+                    view.displayHistory(new HistoryListModel((after, limit) -> model.loadHistoryPage(session, after, limit)));  // 按需分页加载
                 } else {
                     JOptionPane.showMessageDialog(view, "没有历史", "查询失败", JOptionPane.ERROR_MESSAGE); // 显示错误消息框，提示没有历史记录
                 }
@@ -30,14 +68,14 @@ public class Controller {
                 if (inputText.isEmpty()) {
                     view.displayResult("输入为空"); // 提醒输入为空
                 } else {
-                    view.displayResult(model.decimalToBinary(inputText));  // 将输入的文本转换为二进制
+                    background(() -> model.decimalToBinary(session, inputText), view::displayResult);  // 将输入的文本转换为二进制
                 }
             }
             case "转十进制" -> {
                 if (inputText.isEmpty()) {
                     view.displayResult("输入为空"); // 提醒输入为空
                 } else {
-                    view.displayResult(model.binaryToDecimal(inputText));  // 将输入的文本转换为十进制
+                    background(() -> model.binaryToDecimal(session, inputText), view::displayResult);  // 将输入的文本转换为十进制
                 }
             }
             case "清除" -> {
@@ -48,61 +86,160 @@ public class Controller {
                 if (inputText.isEmpty()) {
                     view.displayResult("输入为空"); // 提醒输入为空
                 }
-                view.displayResult(model.calculateExpression(inputText));// 计算表达式的结果
+                background(() -> model.calculateExpression(session, inputText), view::displayResult);// 计算表达式的结果
             }
             default -> view.setInputText(inputText + command);  // 将命令追加到输入文本中
         }
     }
 
-    // 登录方法，根据用户名和密码进行用户登录
-    public static void login(String username, String password) {
-        User user = model.loginUser(username, password);
-        if (user != null) {
-            view.setTitle("计算器Pro - " + user.getUsername()); // 设置视图的标题，显示当前用户的用户名
-        } else {
-            JOptionPane.showMessageDialog(view, "登录失败！请检查用户名和密码。", "登录失败", JOptionPane.ERROR_MESSAGE); // 显示登录失败的错误消息框
+    // 在后台线程执行 task，完成后在事件分派线程中把结果交给 onResult；task 抛出异常时只打印
+    private <T> void background(Callable<T> task, Consumer<T> onResult) {
+        worker.execute(() -> {
+            T result;
+            try {
+                result = task.call();
+            } catch (Exception e) {
+                e.printStackTrace();
+                return;
+            }
+            SwingUtilities.invokeLater(() -> onResult.accept(result));
+        });
+    }
+
+    private static ThreadFactory daemon(String name) {
+        return r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    // 输入框的内容发生变化，开启实时预览时重新计时，停顿后计算
+    public void inputChanged(String inputText) {
+        if (!livePreview) {
+            return;
         }
+        previewInput = inputText;
+        previewTimer.restart();
+    }
 
+    public boolean isLivePreview() {
+        return livePreview;
     }
 
-    // 注册方法，根据用户名和密码进行用户注册
-    public static void register(String username, String password) {
-        try {
-            model.addUser(username, password);
-            JOptionPane.showMessageDialog(view, "注册成功！请使用新账号登录。", "注册成功", JOptionPane.INFORMATION_MESSAGE); // 显示注册成功的信息框
-        } catch (IllegalArgumentException e) {
-            JOptionPane.showMessageDialog(view, e.getMessage(), "注册失败", JOptionPane.ERROR_MESSAGE); // 显示注册失败的错误消息框
+    public void setLivePreview(boolean livePreview) {
+        this.livePreview = livePreview;
+        if (!livePreview) {
+            previewTimer.stop();
+            cancelPreview();
+            view.displayPreview("");
+        }
+    }
+
+    // 取消上一次预览并在后台计算新的预览，结果只在仍是最新一次预览时显示
+    private void startPreview() {
+        cancelPreview();
+        int generation = previewGeneration;
+        String inputText = previewInput;
+        if (inputText.isBlank()) {
+            view.displayPreview("");
+            return;
+        }
+        previewTask = previewer.submit(() -> {
+            String preview = Model.preview(session, inputText);
+            SwingUtilities.invokeLater(() -> {
+                if (generation == previewGeneration) {
+                    view.displayPreview(preview);
+                }
+            });
+        });
+    }
+
+    private void cancelPreview() {
+        previewGeneration++;
+        if (previewTask != null) {
+            previewTask.cancel(true);   // 尚未开始的预览不再执行，正在进行的任意精度计算会被中断
+            previewTask = null;
         }
     }
 
+    // 切换计算精度，digits 为有效位数，0 表示使用 double
+    public void setPrecision(int digits) {
+        session.setMathContext(Model.mathContext(digits));
+    }
+
+    public int getPrecision() {
+        MathContext mathContext = session.getMathContext();
+        return mathContext == null ? 0 : mathContext.getPrecision();
+    }
+
+    // 登录方法，根据用户名和密码进行用户登录
+    public void login(String username, String password) {
+        background(() -> Optional.ofNullable(model.loginUser(session, username, password)), user -> {
+            if (user.isPresent()) {
+                view.setTitle("计算器Pro - " + user.get().getUsername()); // 设置视图的标题，显示当前用户的用户名
+            } else {
+                JOptionPane.showMessageDialog(view, "登录失败！请检查用户名和密码。", "登录失败", JOptionPane.ERROR_MESSAGE); // 显示登录失败的错误消息框
+            }
+        });
+    }
+
+    // 注册方法，根据用户名和密码进行用户注册
+    public void register(String username, String password) {
+        background(() -> {
+            try {
+                model.addUser(username, password);
+                return "";
+            } catch (IllegalArgumentException e) {
+                return e.getMessage();
+            }
+        }, error -> {
+            if (error.isEmpty()) {
+                JOptionPane.showMessageDialog(view, "注册成功！请使用新账号登录。", "注册成功", JOptionPane.INFORMATION_MESSAGE); // 显示注册成功的信息框
+            } else {
+                JOptionPane.showMessageDialog(view, error, "注册失败", JOptionPane.ERROR_MESSAGE); // 显示注册失败的错误消息框
+            }
+        });
+    }
+
     // 退出方法，清除当前用户信息
-    public static void logout() {
+    public void logout() {
         view.setTitle("计算器 Pro"); // 设置视图的标题为默认标题
-        model.logout(); // 清除当前用户信息
+        model.logout(session); // 清除当前用户信息
     }
 
-    public static void cancel() {
-        model.deleteUser();
-        logout();
+    public void cancel() {
+        background(() -> {
+            model.deleteUser(session);
+            return session;
+        }, s -> logout());
     }
 
     // 判断用户是否已登录
-    public static boolean isLoggedIn() {
-        return model.getCurrentUser() != null;
+    public boolean isLoggedIn() {
+        return session.isLoggedIn();
     }
 
     //判断是否是管理员
-    public static boolean isRoot() {
-        return Objects.equals(model.getName(), "root");
+    public boolean isRoot() {
+        return Objects.equals(session.getUsername(), "root");
     }
 
     // 修改密码方法
-    public static boolean changePassword(String oldPassword, String newPassword) {
-        return model.changePassword(oldPassword, newPassword);
+    public void changePassword(String oldPassword, String newPassword) {
+        background(() -> model.changePassword(session, oldPassword, newPassword), view::displayPasswordChangeResult);
     }
 
-    public static void clearHistory() {
-        model.clearHistory();
+    // 管理员面板：在后台读取使用概览，用户列表按需分页加载
+    public void showUsageDashboard() {
+        if (!isRoot()) {
+            return;
+        }
+        background(() -> model.loadUsageSummary(DASHBOARD_TOP, DASHBOARD_DAYS),
+                summary -> view.displayUsageDashboard(summary, new UserUsageListModel(model::loadUserUsagePage)));
+    }
 
+    public void clearHistory() {
+        worker.execute(() -> model.clearHistory(session));
     }
 }
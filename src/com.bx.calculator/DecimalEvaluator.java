@@ -0,0 +1,94 @@
+package com.bx.calculator;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+import java.util.concurrent.CancellationException;
+
+// 任意精度求值：与 double 模式使用同一个扫描器，因此语法和运算顺序完全相同，
+// 数字直接从表达式文本构造为 BigDecimal，0.1 等小数不会先变成二进制近似值。工作表中的变量按 double 保存，取值后再转换
+final class DecimalEvaluator implements ExpressionScanner.Sink {
+    private final MathContext mc;
+    private final Worksheet worksheet;  // 变量的来源，为 null 时不能引用变量
+    private BigDecimal[] numbers = new BigDecimal[16];  // 数字栈
+    private int numberTop;
+
+    private DecimalEvaluator(MathContext mc, Worksheet worksheet) {
+        this.mc = mc;
+        this.worksheet = worksheet;
+    }
+
+    // 按 mc 的精度计算规范化后的表达式，变量从 worksheet 中取值
+    static BigDecimal evaluate(String expression, MathContext mc, Worksheet worksheet) {
+        DecimalEvaluator evaluator = new DecimalEvaluator(mc, worksheet);
+        ExpressionScanner.local().scan(expression, evaluator);
+        ExpressionScanner.require(evaluator.numberTop, 1);
+        return evaluator.numbers[evaluator.numberTop - 1];
+    }
+
+    @Override
+    public void number(String expression, int start, int end) {
+        push(new BigDecimal(expression.substring(start, end), mc));
+    }
+
+    @Override
+    public void push(double value) {
+        push(new BigDecimal(value, mc));
+    }
+
+    @Override
+    public void variable(String expression, int start, int end) {
+        String name = expression.substring(start, end);
+        if (worksheet == null) {
+            throw ExpressionScanner.undefined(name);
+        }
+        push(worksheet.value(name));
+    }
+
+    private void push(BigDecimal value) {
+        if (numberTop == numbers.length) {
+            numbers = Arrays.copyOf(numbers, numberTop * 2);
+        }
+        numbers[numberTop++] = value;
+    }
+
+    @Override
+    public void operation(char operator) {
+        checkCancelled();
+        if (operator == '√') {
+            ExpressionScanner.require(numberTop, 1);
+            numbers[numberTop - 1] = DecimalMath.sqrt(numbers[numberTop - 1], mc);
+            return;
+        }
+        ExpressionScanner.require(numberTop, 2);
+        BigDecimal num2 = numbers[--numberTop];
+        BigDecimal num1 = numbers[numberTop - 1];
+        numbers[numberTop - 1] = switch (operator) {
+            case '+' -> num1.add(num2, mc);
+            case '-' -> num1.subtract(num2, mc);
+            case '*' -> num1.multiply(num2, mc);
+            case '/' -> {
+                if (num2.signum() == 0) {
+                    throw new ArithmeticException("除数不能为零");
+                }
+                yield num1.divide(num2, mc);
+            }
+            case '^' -> DecimalMath.pow(num1, num2, mc);
+            default -> BigDecimal.ZERO;
+        };
+    }
+
+    @Override
+    public void factorial() {
+        checkCancelled();
+        ExpressionScanner.require(numberTop, 1);
+        numbers[numberTop - 1] = DecimalMath.factorial(numbers[numberTop - 1], mc);
+    }
+
+    // 高精度运算较慢，每次运算前检查线程是否被中断，被取消的实时预览尽快结束
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("计算已取消");
+        }
+    }
+}
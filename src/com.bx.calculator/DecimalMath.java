@@ -0,0 +1,157 @@
+package com.bx.calculator;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+
+// 任意精度模式下的开方、乘方、指数和对数。
+// 迭代以 double 的结果（约 15 位有效数字）为初值，开方用牛顿迭代（每轮有效位数翻倍），对数用 Halley 迭代（每轮翻三倍），
+// 中间结果多保留 GUARD_DIGITS 位，最后按 MathContext 舍入
+final class DecimalMath {
+    private static final int GUARD_DIGITS = 10;
+    private static final int DOUBLE_DIGITS = 15;    // double 初值的可靠位数
+    private static final int MAX_FACTORIAL = 100_000;   // 更大的精确阶乘耗时过长
+    private static final BigDecimal TWO = BigDecimal.valueOf(2);
+    private static final BigDecimal HALF = new BigDecimal("0.5");
+    private static final double LOG2_10 = Math.log(10) / Math.log(2);
+
+    private DecimalMath() {
+    }
+
+    // 平方根，负数抛出 ArithmeticException
+    static BigDecimal sqrt(BigDecimal x, MathContext mc) {
+        if (x.signum() < 0) {
+            throw new ArithmeticException("负数不能开平方");
+        }
+        if (x.signum() == 0) {
+            return BigDecimal.ZERO;
+        }
+        int target = precisionOf(mc) + GUARD_DIGITS;
+        // x = m * 10^e，e 取偶数，sqrt(x) ≈ sqrt(m) * 10^(e/2)
+        int exponent = x.precision() - x.scale() - 1;
+        exponent -= Math.floorMod(exponent, 2);
+        BigDecimal guess = new BigDecimal(Math.sqrt(x.movePointLeft(exponent).doubleValue())).movePointRight(exponent / 2);
+        int precision = DOUBLE_DIGITS;
+        do {
+            precision = Math.min(target, precision * 2);
+            MathContext work = new MathContext(precision + 2, RoundingMode.HALF_EVEN);
+            guess = guess.add(x.divide(guess, work), work).multiply(HALF, work);
+        } while (precision < target);
+        return guess.round(mc);
+    }
+
+    // 乘方：指数为整数时逐次平方，否则按 exp(y * ln x) 计算，负数的非整数次幂抛出 ArithmeticException
+    static BigDecimal pow(BigDecimal x, BigDecimal y, MathContext mc) {
+        if (isInteger(y) && y.abs().compareTo(BigDecimal.valueOf(999_999_999)) <= 0) {
+            int n = y.intValueExact();
+            if (n < 0 && x.signum() == 0) {
+                throw new ArithmeticException("除数不能为零");
+            }
+            return x.pow(n, mc);
+        }
+        if (x.signum() < 0) {
+            throw new ArithmeticException("负数的非整数次幂没有实数结果");
+        }
+        if (x.signum() == 0) {
+            if (y.signum() < 0) {
+                throw new ArithmeticException("除数不能为零");
+            }
+            return BigDecimal.ZERO;
+        }
+        // 结果的相对误差约等于 y * ln x 的绝对误差，按其整数位数追加保护位
+        double magnitude = Math.abs(y.doubleValue() * estimateLn(x));
+        int extra = magnitude < 1 ? 0 : (int) Math.ceil(Math.log10(magnitude + 1));
+        MathContext work = new MathContext(precisionOf(mc) + GUARD_DIGITS + extra, RoundingMode.HALF_EVEN);
+        return exp(y.multiply(ln(x, work), work), work).round(mc);
+    }
+
+    // e^z，结果超出 BigDecimal 的指数范围时抛出 ArithmeticException
+    static BigDecimal exp(BigDecimal z, MathContext mc) {
+        if (z.signum() == 0) {
+            return BigDecimal.ONE;
+        }
+        double estimate = Math.abs(z.doubleValue());
+        if (estimate > 4e9) {
+            throw new ArithmeticException("结果超出范围");
+        }
+        // z 折半 k 次使 |r| < 2^-m，泰勒展开后再平方 k 次；m 随精度增大，项数随之减少。
+        // 每次平方使相对误差翻倍，按 k 追加保护位
+        int reduction = (int) Math.sqrt(precisionOf(mc));
+        int halvings = (estimate < 1 ? 0 : 64 - Long.numberOfLeadingZeros((long) estimate)) + reduction;
+        MathContext work = new MathContext(precisionOf(mc) + GUARD_DIGITS + halvings * 3 / 10 + 1, RoundingMode.HALF_EVEN);
+        BigDecimal r = z.divide(TWO.pow(halvings), work);
+
+        // 以 2^bits 为单位的定点数计算泰勒级数，乘法后移位、除以小整数，比带 MathContext 的 BigDecimal 运算快得多
+        int bits = (int) Math.ceil(work.getPrecision() * LOG2_10) + 8;
+        BigInteger fixedR = r.multiply(new BigDecimal(BigInteger.ONE.shiftLeft(bits))).setScale(0, RoundingMode.HALF_EVEN).toBigInteger();
+        BigInteger term = BigInteger.ONE.shiftLeft(bits);
+        BigInteger sum = term;
+        for (int i = 1; term.signum() != 0; i++) {
+            term = term.multiply(fixedR).shiftRight(bits).divide(BigInteger.valueOf(i));
+            sum = sum.add(term);
+        }
+        // sum / 2^bits = sum * 5^bits / 10^bits
+        BigDecimal result = new BigDecimal(sum.multiply(BigInteger.valueOf(5).pow(bits)), bits, work);
+        for (int i = 0; i < halvings; i++) {
+            result = result.multiply(result, work);
+        }
+        return result.round(mc);
+    }
+
+    // 自然对数，x 必须为正数。Halley 迭代 y += 2(x - e^y) / (x + e^y)
+    static BigDecimal ln(BigDecimal x, MathContext mc) {
+        if (x.signum() <= 0) {
+            throw new ArithmeticException("对数的真数必须为正数");
+        }
+        if (x.compareTo(BigDecimal.ONE) == 0) {
+            return BigDecimal.ZERO;
+        }
+        int target = precisionOf(mc) + GUARD_DIGITS;
+        BigDecimal y = new BigDecimal(estimateLn(x));
+        int precision = DOUBLE_DIGITS;
+        do {
+            precision = Math.min(target, precision * 3);
+            MathContext work = new MathContext(precision + 2, RoundingMode.HALF_EVEN);
+            BigDecimal ey = exp(y, work);
+            y = y.add(TWO.multiply(x.subtract(ey, work), work).divide(x.add(ey, work), work), work);
+        } while (precision < target);
+        return y.round(mc);
+    }
+
+    // 阶乘：参数向零截断为整数，精确计算后按 MathContext 舍入
+    static BigDecimal factorial(BigDecimal x, MathContext mc) {
+        BigDecimal n = x.setScale(0, RoundingMode.DOWN);
+        if (n.signum() < 0) {
+            throw new ArithmeticException("负数没有阶乘");
+        }
+        if (n.compareTo(BigDecimal.valueOf(MAX_FACTORIAL)) > 0) {
+            throw new ArithmeticException("阶乘的参数不能超过 " + MAX_FACTORIAL);
+        }
+        return new BigDecimal(Factorials.exact(n.intValue()), mc);
+    }
+
+    // 结果的显示形式：去掉末尾的 0，数量级不太大时不使用科学计数法
+    static String format(BigDecimal value) {
+        BigDecimal stripped = value.stripTrailingZeros();
+        int exponent = stripped.precision() - stripped.scale() - 1;
+        return Math.abs(exponent) < 50 ? stripped.toPlainString() : stripped.toString();
+    }
+
+    private static boolean isInteger(BigDecimal value) {
+        return value.signum() == 0 || value.scale() <= 0 || value.stripTrailingZeros().scale() <= 0;
+    }
+
+    // ln x 的 double 近似：x = m * 10^e，ln x = ln m + e * ln 10，不受 double 指数范围限制
+    private static double estimateLn(BigDecimal x) {
+        int exponent = x.precision() - x.scale() - 1;
+        return Math.log(x.movePointLeft(exponent).doubleValue()) + exponent * Math.log(10);
+    }
+
+    private static int precisionOf(MathContext mc) {
+        if (mc.getPrecision() == 0) {
+            throw new ArithmeticException("无限精度下结果无法精确表示");
+        }
+        return mc.getPrecision();
+    }
+}
@@ -0,0 +1,18 @@
+package com.bx.calculator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// 一次表达式求值的 JFR 事件，未开启录制时不产生开销
+@Name("com.bx.calculator.Evaluation")
+@Label("Evaluation")
+@Category("Calculator")
+class EvaluationEvent extends Event {
+    @Label("Expression")
+    String expression;
+
+    @Label("Success")
+    boolean success;
+}
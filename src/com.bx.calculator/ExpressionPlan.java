@@ -0,0 +1,313 @@
+package com.bx.calculator;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+// 表达式执行计划：将表达式一次性编译为后缀指令序列，编译后不可变，可在多个线程间共享。
+// 表达式中的变量按名称记录，求值时由调用方按 variables() 的顺序传入变量值，因此同一计划可以用于不同的工作表。
+// 编译后的指令先经过 PlanOptimizer 优化（常量折叠、恒等式消除等），结果与未优化的计划逐位相同。
+// 同一计划被执行的次数达到阈值后，会被 PlanCompiler 编译为 MethodHandle 树（第二层），之后直接调用编译结果；
+// 含变量的计划同样编译，变量值作为参数数组传入
+public final class ExpressionPlan {
+    private static final int JIT_THRESHOLD = Integer.getInteger("calc.jit.threshold", 1000);   // 小于等于 0 时不做第二层编译
+    private static final boolean OPTIMIZE = Boolean.parseBoolean(System.getProperty("calc.optimize", "true"));
+
+    static final byte PUSH = 0;     // 压入常量
+    static final byte ADD = 1;
+    static final byte SUB = 2;
+    static final byte MUL = 3;
+    static final byte DIV = 4;
+    static final byte POW = 5;
+    static final byte SQRT = 6;     // 一元开方
+    static final byte FACT = 7;     // 一元阶乘
+    static final byte ZERO = 8;     // 未闭合的 '(' 被当作运算符弹出时，原算法弹出两个数并压入 0
+    static final byte LOAD = 9;     // 压入变量的值
+    static final byte SAVE = 10;    // 把栈顶的值复制到下一个暂存位置，供重复的子表达式使用
+    static final byte RESTORE = 11; // 压入暂存位置中的值
+
+    private final byte[] code;  // 指令序列
+    private final double[] constants;   // PUSH 指令使用的常量，按出现顺序排列
+    private final String[] variables;   // 引用的变量名，不重复，按首次出现的顺序排列
+    private final int[] loads;  // LOAD 指令读取的变量在 variables 中的下标，按出现顺序排列
+    private final int[] restores;   // RESTORE 指令读取的暂存位置，按出现顺序排列
+    private final int maxDepth; // 求值时数字栈的最大深度
+    private final int temps;    // 暂存位置的个数，位于数字栈 maxDepth 之后
+    private static final double[] NO_ARGUMENTS = {};
+
+    private int invocations;    // 解释执行的次数，多线程下允许少量计数丢失
+    private volatile MethodHandle compiled;    // 第二层编译结果，类型为 (double[])double
+
+    private ExpressionPlan(byte[] code, double[] constants, String[] variables, int[] loads, int[] restores, int maxDepth, int temps) {
+        this.code = code;
+        this.constants = constants;
+        this.variables = variables;
+        this.loads = loads;
+        this.restores = restores;
+        this.maxDepth = maxDepth;
+        this.temps = temps;
+    }
+
+    // 编译规范化后的表达式，运算顺序与原先边扫描边计算的双栈算法完全一致，语法错误在编译时抛出。
+    // calc.optimize=false 时不做优化
+    public static ExpressionPlan compile(String expression) {
+        return compile(expression, OPTIMIZE);
+    }
+
+    static ExpressionPlan compile(String expression, boolean optimize) {
+        Builder builder = new Builder(expression.length());
+        ExpressionScanner.local().scan(expression, builder);
+        ExpressionPlan plan = builder.build();
+        return optimize ? PlanOptimizer.optimize(plan) : plan;
+    }
+
+    // 执行计划，不再需要扫描表达式；计划引用了变量时抛出 IllegalArgumentException
+    public double evaluate() {
+        if (variables.length != 0) {
+            throw ExpressionScanner.undefined(variables[0]);
+        }
+        return run(NO_ARGUMENTS);
+    }
+
+    // 以 arguments 作为变量的值执行计划，arguments 与 variables() 一一对应
+    public double evaluate(double[] arguments) {
+        if (arguments.length != variables.length) {
+            throw new IllegalArgumentException("变量个数不匹配: 需要 " + variables.length + " 个，传入 " + arguments.length + " 个");
+        }
+        return run(arguments);
+    }
+
+    // 已编译时调用第二层编译结果，否则解释执行并计数
+    private double run(double[] arguments) {
+        MethodHandle handle = compiled;
+        if (handle != null) {
+            try {
+                return (double) handle.invokeExact(arguments);
+            } catch (RuntimeException | Error e) {
+                throw e;    // 负数阶乘等运算错误与解释执行抛出同样的异常
+            } catch (Throwable e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        if (JIT_THRESHOLD > 0 && ++invocations == JIT_THRESHOLD) {
+            compiled = PlanCompiler.compile(this);  // 不适合编译时返回 null，继续解释执行
+        }
+        return interpret(arguments);
+    }
+
+    // 解释执行后缀指令
+    double interpret(double[] arguments) {
+        double[] stack = ExpressionScanner.local().numbers(maxDepth + temps);   // 复用当前线程的数字栈
+        int top = 0;
+        int constant = 0;
+        int load = 0;
+        int save = maxDepth;
+        int restore = 0;
+        for (byte op : code) {
+            switch (op) {
+                case PUSH -> stack[top++] = constants[constant++];
+                case LOAD -> stack[top++] = arguments[loads[load++]];
+                case SAVE -> stack[save++] = stack[top - 1];
+                case RESTORE -> stack[top++] = stack[maxDepth + restores[restore++]];
+                case SQRT, FACT -> stack[top - 1] = unary(op, stack[top - 1]);
+                default -> {
+                    double num2 = stack[--top];
+                    stack[top - 1] = binary(op, stack[top - 1], num2);
+                }
+            }
+        }
+        return stack[top - 1];
+    }
+
+    // 一元运算，与解释执行和常量折叠共用
+    static double unary(byte op, double operand) {
+        return op == SQRT ? Math.sqrt(operand) : Factorials.operator(operand);
+    }
+
+    // 二元运算，与解释执行和常量折叠共用
+    static double binary(byte op, double num1, double num2) {
+        return switch (op) {
+            case ADD -> num1 + num2;
+            case SUB -> num1 - num2;
+            case MUL -> num1 * num2;
+            case DIV -> num1 / num2;
+            case POW -> Math.pow(num1, num2);
+            default -> 0;
+        };
+    }
+
+    // 引用的变量名，求值时按此顺序传入变量值
+    public String[] variables() {
+        return variables.clone();
+    }
+
+    public int variableCount() {
+        return variables.length;
+    }
+
+    // 指令数量，可用于估算计划大小
+    public int size() {
+        return code.length;
+    }
+
+    // 是否已经升级为第二层编译结果
+    public boolean isCompiled() {
+        return compiled != null;
+    }
+
+    // 后缀指令的归约回调，用于把计划转换为树形结构（编译、优化等）
+    interface Reducer<T> {
+        T constant(double value);
+
+        T variable(int index);  // index 为变量在 variables() 中的下标
+
+        T unary(byte op, T operand);
+
+        T binary(byte op, T left, T right);
+    }
+
+    // 按后缀顺序归约整个计划，返回根节点；重复的子表达式归约为同一个对象
+    @SuppressWarnings("unchecked")
+    <T> T reduce(Reducer<T> reducer) {
+        Object[] stack = new Object[maxDepth + temps];
+        int top = 0;
+        int constant = 0;
+        int load = 0;
+        int save = maxDepth;
+        int restore = 0;
+        for (byte op : code) {
+            switch (op) {
+                case PUSH -> stack[top++] = reducer.constant(constants[constant++]);
+                case LOAD -> stack[top++] = reducer.variable(loads[load++]);
+                case SAVE -> stack[save++] = stack[top - 1];
+                case RESTORE -> stack[top++] = stack[maxDepth + restores[restore++]];
+                case SQRT, FACT -> stack[top - 1] = reducer.unary(op, (T) stack[top - 1]);
+                default -> {
+                    T right = (T) stack[--top];
+                    stack[top - 1] = reducer.binary(op, (T) stack[top - 1], right);
+                }
+            }
+        }
+        return (T) stack[top - 1];
+    }
+
+    // 编译期使用的指令缓冲区，同时跟踪栈深度以便在编译时发现栈下溢；PlanOptimizer 也用它生成优化后的计划
+    static final class Builder implements ExpressionScanner.Sink {
+        private byte[] code;
+        private double[] constants;
+        private int codeLength;
+        private int constantCount;
+        private int[] loads = new int[4];
+        private int loadCount;
+        private int[] restores = new int[4];
+        private int restoreCount;
+        private int temps;
+        private final Map<String, Integer> variables = new HashMap<>();  // 变量名到下标
+        private int depth;
+        private int maxDepth;
+
+        Builder(int expressionLength) {
+            code = new byte[Math.max(8, expressionLength)];
+            constants = new double[Math.max(4, expressionLength / 2 + 1)];
+        }
+
+        @Override
+        public void push(double value) {
+            if (constantCount == constants.length) {
+                constants = Arrays.copyOf(constants, constantCount * 2);
+            }
+            constants[constantCount++] = value;
+            emit(PUSH);
+            grow();
+        }
+
+        @Override
+        public void variable(String expression, int start, int end) {
+            load(declare(expression.substring(start, end)));
+        }
+
+        // 登记变量名，返回它的下标
+        int declare(String name) {
+            return variables.computeIfAbsent(name, key -> variables.size());
+        }
+
+        void load(int index) {
+            if (loadCount == loads.length) {
+                loads = Arrays.copyOf(loads, loadCount * 2);
+            }
+            loads[loadCount++] = index;
+            emit(LOAD);
+            grow();
+        }
+
+        // 暂存栈顶的值，返回暂存位置
+        int save() {
+            require(1);
+            emit(SAVE);
+            return temps++;
+        }
+
+        void restore(int slot) {
+            if (restoreCount == restores.length) {
+                restores = Arrays.copyOf(restores, restoreCount * 2);
+            }
+            restores[restoreCount++] = slot;
+            emit(RESTORE);
+            grow();
+        }
+
+        private void grow() {
+            depth++;
+            maxDepth = Math.max(maxDepth, depth);
+        }
+
+        void unary(byte op) {
+            require(1);
+            emit(op);
+        }
+
+        void binary(byte op) {
+            require(2);
+            emit(op);
+            depth--;
+        }
+
+        @Override
+        public void operation(char operator) {
+            switch (operator) {
+                case '√' -> unary(SQRT);
+                case '+' -> binary(ADD);
+                case '-' -> binary(SUB);
+                case '*' -> binary(MUL);
+                case '/' -> binary(DIV);
+                case '^' -> binary(POW);
+                default -> binary(ZERO);
+            }
+        }
+
+        @Override
+        public void factorial() {
+            unary(FACT);
+        }
+
+        ExpressionPlan build() {
+            require(1); // 最终结果出栈
+            String[] names = new String[variables.size()];
+            variables.forEach((name, index) -> names[index] = name);
+            return new ExpressionPlan(Arrays.copyOf(code, codeLength), Arrays.copyOf(constants, constantCount),
+                    names, Arrays.copyOf(loads, loadCount), Arrays.copyOf(restores, restoreCount), maxDepth, temps);
+        }
+
+        private void require(int operands) {
+            ExpressionScanner.require(depth, operands);
+        }
+
+        private void emit(byte op) {
+            if (codeLength == code.length) {
+                code = Arrays.copyOf(code, codeLength * 2);
+            }
+            code[codeLength++] = op;
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.bx.calculator;
+
+import java.util.Arrays;
+import java.util.EmptyStackException;
+
+// 单遍扫描器：直接在规范化后的表达式上识别数字、变量名和运算符，数字原地解析，
+// 运算符栈和数字栈都是基本类型数组，按线程复用，求值过程中不产生装箱对象
+final class ExpressionScanner {
+    // 扫描结果的接收者：可以立即求值，也可以生成执行计划
+    interface Sink {
+        void push(double value);
+
+        // 表达式中 [start, end) 范围内的数字文本，默认解析为 double
+        default void number(String expression, int start, int end) {
+            push(parseNumber(expression, start, end));
+        }
+
+        // 表达式中 [start, end) 范围内的变量名
+        void variable(String expression, int start, int end);
+
+        void operation(char operator);  // 对应原算法的 performOperation
+
+        void factorial();
+    }
+
+    private static final ThreadLocal<ExpressionScanner> LOCAL = ThreadLocal.withInitial(ExpressionScanner::new);
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+            1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+    private char[] operators = new char[32];    // 运算符栈
+    private double[] numbers = new double[32];  // 数字栈
+    private int numberTop;
+    private final Sink evaluator = new Sink() {
+        @Override
+        public void push(double value) {
+            numbers(numberTop + 1)[numberTop++] = value;
+        }
+
+        @Override
+        public void variable(String expression, int start, int end) {
+            throw undefined(expression.substring(start, end));  // 直接求值时没有可用的变量
+        }
+
+        @Override
+        public void operation(char operator) {
+            numberTop = apply(numbers, numberTop, operator);
+        }
+
+        @Override
+        public void factorial() {
+            require(numberTop, 1);
+            numbers[numberTop - 1] = Factorials.operator(numbers[numberTop - 1]);
+        }
+    };
+
+    private ExpressionScanner() {
+    }
+
+    // 当前线程的扫描器
+    static ExpressionScanner local() {
+        return LOCAL.get();
+    }
+
+    // 直接扫描并求值，不生成执行计划
+    double evaluate(String expression) {
+        numberTop = 0;
+        scan(expression, evaluator);
+        require(numberTop, 1);
+        return numbers[numberTop - 1];
+    }
+
+    // 返回至少能容纳 depth 个元素的数字栈，供执行计划复用
+    double[] numbers(int depth) {
+        if (numbers.length < depth) {
+            numbers = Arrays.copyOf(numbers, Math.max(depth, numbers.length * 2));
+        }
+        return numbers;
+    }
+
+    // 按原先双栈算法的顺序扫描表达式，把数字和需要执行的运算依次交给 sink
+    void scan(String expression, Sink sink) {
+        int length = expression.length();
+        if (operators.length < length) {
+            operators = new char[length];
+        }
+        char[] operatorStack = operators;
+        int operatorTop = 0;
+
+        for (int i = 0; i < length; i++) {
+            char ch = expression.charAt(i);
+            if (Character.isDigit(ch)) {
+                int start = i;
+                // 继续读取数字的其他字符
+                while (i + 1 < length && (Character.isDigit(expression.charAt(i + 1)) || expression.charAt(i + 1) == '.')) {
+                    i++;
+                }
+                sink.number(expression, start, i + 1);
+            } else if (isIdentifierStart(ch)) {
+                int start = i;
+                while (i + 1 < length && isIdentifierPart(expression.charAt(i + 1))) {
+                    i++;
+                }
+                sink.variable(expression, start, i + 1);
+            } else if (ch == '(') {
+                operatorStack[operatorTop++] = ch;
+            } else if (ch == ')') {
+                while (operatorTop > 0 && operatorStack[operatorTop - 1] != '(') {
+                    sink.operation(operatorStack[--operatorTop]);
+                }
+                if (operatorTop == 0) {
+                    throw new EmptyStackException();
+                }
+                operatorTop--; // 弹出 '('
+            } else if (isOperator(ch)) {
+                while (operatorTop > 0 && precedence(operatorStack[operatorTop - 1]) >= precedence(ch)) {
+                    sink.operation(operatorStack[--operatorTop]);
+                }
+                operatorStack[operatorTop++] = ch;
+            } else if (ch == '!') { // 阶乘作用于栈顶数字
+                sink.factorial();
+            } else if (ch == '^' || ch == '√') {
+                operatorStack[operatorTop++] = ch;
+            }
+        }
+
+        while (operatorTop > 0) {
+            sink.operation(operatorStack[--operatorTop]);
+        }
+    }
+
+    // 执行一次运算，返回新的栈顶位置
+    static int apply(double[] stack, int top, char operator) {
+        if (operator == '√') {
+            require(top, 1);
+            stack[top - 1] = Math.sqrt(stack[top - 1]);
+            return top;
+        }
+        require(top, 2);
+        double num2 = stack[top - 1];
+        double num1 = stack[top - 2];
+        stack[top - 2] = switch (operator) {
+            case '+' -> num1 + num2;
+            case '-' -> num1 - num2;
+            case '*' -> num1 * num2;
+            case '/' -> num1 / num2;
+            case '^' -> Math.pow(num1, num2);
+            default -> 0;
+        };
+        return top - 1;
+    }
+
+    static void require(int depth, int operands) {
+        if (depth < operands) {
+            throw new EmptyStackException();
+        }
+    }
+
+    // 引用了未定义的变量
+    static IllegalArgumentException undefined(String name) {
+        return new IllegalArgumentException("未定义的变量: " + name);
+    }
+
+    // 变量名以字母或下划线开头，后接字母、数字或下划线
+    static boolean isIdentifierStart(char ch) {
+        return Character.isLetter(ch) || ch == '_';
+    }
+
+    static boolean isIdentifierPart(char ch) {
+        return Character.isLetterOrDigit(ch) || ch == '_';
+    }
+
+    static boolean isOperator(char ch) {
+        return ch == '+' || ch == '-' || ch == '*' || ch == '/';
+    }
+
+    static int precedence(char ch) {
+        if (ch == '+' || ch == '-') {
+            return 1;
+        } else if (ch == '*' || ch == '/') {
+            return 2;
+        } else if (ch == '^' || ch == '√') {
+            return 3;
+        }
+        return 0;
+    }
+
+    // 原地解析 [start, end) 范围内的数字，结果与 Double.parseDouble 完全一致。
+    // 有效数字不超过 2^53 且小数位不超过 22 位时，尾数和 10 的幂都能精确表示，一次除法即得到正确舍入的结果；
+    // 其余情况（位数过多、多个小数点）交给 Double.parseDouble 处理
+    static double parseNumber(String s, int start, int end) {
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean point = false;
+        for (int i = start; i < end; i++) {
+            char ch = s.charAt(i);
+            if (ch == '.') {
+                if (point) {
+                    return Double.parseDouble(s.substring(start, end));
+                }
+                point = true;
+                continue;
+            }
+            if (ch > '9') { // 非 ASCII 数字由 Double.parseDouble 报错
+                return Double.parseDouble(s.substring(start, end));
+            }
+            if (mantissa != 0 || ch != '0') {
+                if (++digits > 18) {
+                    return Double.parseDouble(s.substring(start, end));
+                }
+            }
+            mantissa = mantissa * 10 + (ch - '0');
+            if (point) {
+                fractionDigits++;
+            }
+        }
+        if (mantissa > MAX_EXACT_MANTISSA || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(s.substring(start, end));
+        }
+        return fractionDigits == 0 ? (double) mantissa : mantissa / POWERS_OF_TEN[fractionDigits];
+    }
+}
@@ -0,0 +1,160 @@
+package com.bx.calculator;
+
+import java.math.BigInteger;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.RecursiveTask;
+
+// 阶乘运算。
+// 表达式中的 '!' 默认与原先的 long 循环结果逐位一致（超过 20! 后按 2^64 取模回绕）：n >= 66 时 n! 含有至少 64 个因子 2，
+// 回绕后恒为 0，因此 0..65 的结果全部查表得到。calc.factorial.exact=true 时 '!' 改为返回精确值舍入后的 double，
+// 超过 170! 为 Infinity。
+// 精确阶乘使用 Luschny 的拆分递归算法：n! = 2^(n - bitCount(n)) * ∏ O(n >> i)，O(m) 为不超过 m 的奇数之积，
+// 奇数区间的乘积二分后两两相乘，使参与乘法的两个数位数接近；区间足够大时在 fork-join 线程池上并行计算
+public final class Factorials {
+    public static final boolean EXACT = Boolean.getBoolean("calc.factorial.exact");
+    private static final int WRAPPED_LIMIT = 66;    // n >= 66 时 long 回绕结果为 0
+    private static final int DOUBLE_LIMIT = 171;    // 171! 超出 double 范围
+    private static final int LEAF_SIZE = 16;    // 奇数个数不超过该值时直接相乘
+    private static final int PARALLEL_THRESHOLD = 4096;  // 奇数个数超过该值时拆分为并行任务
+    private static final int MEMO_SIZE = 32;    // 最近计算过的大阶乘
+
+    private static final long[] WRAPPED = new long[WRAPPED_LIMIT];
+    private static final double[] DOUBLES = new double[DOUBLE_LIMIT];
+    private static final Map<Integer, BigInteger> MEMO = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, BigInteger> eldest) {
+            return size() > MEMO_SIZE;
+        }
+    };
+
+    static {
+        long wrapped = 1;
+        for (int i = 0; i < WRAPPED_LIMIT; i++) {
+            if (i > 0) {
+                wrapped *= i;
+            }
+            WRAPPED[i] = wrapped;
+        }
+        BigInteger exact = BigInteger.ONE;
+        for (int i = 0; i < DOUBLE_LIMIT; i++) {
+            if (i > 0) {
+                exact = exact.multiply(BigInteger.valueOf(i));
+            }
+            DOUBLES[i] = exact.doubleValue();   // BigInteger.doubleValue 按就近舍入
+        }
+    }
+
+    private Factorials() {
+    }
+
+    // 表达式中 '!' 的语义，参数先截断为 int
+    static double operator(double x) {
+        int n = (int) x;
+        return EXACT ? toDouble(n) : wrapped(n);
+    }
+
+    // 与 long 循环相同的结果：负数为 1，超过 20! 后按 2^64 取模回绕
+    public static long wrapped(long n) {
+        if (n < 0) {
+            return 1;
+        }
+        return n < WRAPPED_LIMIT ? WRAPPED[(int) n] : 0;
+    }
+
+    // 精确值舍入到最近的 double，超出范围时为 Infinity，负数为 NaN
+    public static double toDouble(long n) {
+        if (n < 0) {
+            return Double.NaN;
+        }
+        return n < DOUBLE_LIMIT ? DOUBLES[(int) n] : Double.POSITIVE_INFINITY;
+    }
+
+    // 精确阶乘，n 为负数时抛出 IllegalArgumentException
+    public static BigInteger exact(int n) {
+        if (n < 0) {
+            throw new IllegalArgumentException("负数没有阶乘: " + n);
+        }
+        if (n <= 20) {
+            return BigInteger.valueOf(WRAPPED[n]);
+        }
+        synchronized (MEMO) {
+            BigInteger cached = MEMO.get(n);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        BigInteger result = splitRecursive(n);
+        synchronized (MEMO) {
+            MEMO.put(n, result);
+        }
+        return result;
+    }
+
+    // 从 O(n >> k) 开始逐级扩展奇数积 p，r 累乘每一级的 p，最后补上因子 2
+    static BigInteger splitRecursive(int n) {
+        BigInteger p = BigInteger.ONE;
+        BigInteger r = BigInteger.ONE;
+        int high = 1;   // p 已包含的最大奇数
+        for (int shift = 31 - Integer.numberOfLeadingZeros(n); shift >= 0; shift--) {
+            int m = n >>> shift;
+            int top = (m - 1) | 1;  // 不超过 m 的最大奇数
+            if (top > high) {
+                p = p.multiply(oddProduct(high + 2, top));
+                high = top;
+            }
+            r = r.multiply(p);
+        }
+        return r.shiftLeft(n - Integer.bitCount(n));
+    }
+
+    // 奇数区间 [low, high] 的乘积，low 和 high 均为奇数
+    private static BigInteger oddProduct(int low, int high) {
+        int count = (high - low) / 2 + 1;
+        if (count > PARALLEL_THRESHOLD) {
+            return new OddProductTask(low, high).invoke();
+        }
+        return multiplyRange(low, high);
+    }
+
+    private static BigInteger multiplyRange(int low, int high) {
+        int count = (high - low) / 2 + 1;
+        if (count <= LEAF_SIZE) {
+            BigInteger product = BigInteger.ONE;
+            for (long i = low; i <= high; i += 4) {
+                // 两个不超过 2^31 的数之积在 long 范围内，减少一半的 BigInteger 乘法
+                long pair = i + 2 <= high ? i * (i + 2) : i;
+                product = product.multiply(BigInteger.valueOf(pair));
+            }
+            return product;
+        }
+        int middle = low + (count / 2) * 2;   // 右半部分的第一个奇数
+        return multiplyRange(low, middle - 2).multiply(multiplyRange(middle, high));
+    }
+
+    // 并行计算奇数区间的乘积，在公共 fork-join 线程池上执行
+    private static final class OddProductTask extends RecursiveTask<BigInteger> {
+        private static final long serialVersionUID = 1L;
+
+        private final int low;
+        private final int high;
+
+        OddProductTask(int low, int high) {
+            this.low = low;
+            this.high = high;
+        }
+
+        @Override
+        protected BigInteger compute() {
+            int count = (high - low) / 2 + 1;
+            if (count <= PARALLEL_THRESHOLD) {
+                return multiplyRange(low, high);
+            }
+            int middle = low + (count / 2) * 2;
+            OddProductTask left = new OddProductTask(low, middle - 2);
+            left.fork();
+            BigInteger right = new OddProductTask(middle, high).compute();
+            return left.join().multiply(right);
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.bx.calculator;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// 运算记录的二进制归档，用于在环境之间迁移历史记录。文件由若干块组成，每块至多 BLOCK_SIZE 条记录，按列存放：
+//   用户名和表达式两列各带一个块内字典，每条记录只写字典下标；
+//   时间写与上一条记录的毫秒差（zigzag 变长整数）和毫秒以下的纳秒数；
+//   结果按原始的 8 字节 double 写入，导入后逐位相同。
+// 每块以 int 字节数开头，字节数为 0 表示文件结束。块内的字典互相独立，读写时只需一块的内存，与历史记录的总量无关。
+// 记录的编号不导出，导入时由存储后端重新分配
+final class HistoryArchive {
+    static final int BLOCK_SIZE = 1000; // 每块的记录数，也是导入时一次批量写入的条数
+    private static final int MAGIC = 0x43414C48;    // "CALH"
+    private static final byte VERSION = 1;
+    private static final int NANOS_PER_MILLI = 1_000_000;
+
+    private HistoryArchive() {
+    }
+
+    // 导出指定用户的运算记录，username 为 null 时导出全部用户；按存储后端的分页逐页写出，返回导出的条数。
+    // 每个用户的记录按时间从旧到新排列，导入时按同样的顺序写入
+    static long export(Storage storage, String username, WritableByteChannel channel) throws IOException {
+        Writer writer = new Writer(channel);
+        long count = 0;
+        if (username != null) {
+            count = exportUser(storage, username, writer);
+        } else {
+            List<UserUsage> users = storage.loadUserUsage(null, PagedListModel.PAGE_SIZE);
+            while (!users.isEmpty()) {
+                for (UserUsage user : users) {
+                    count += exportUser(storage, user.getUsername(), writer);
+                }
+                users = users.size() < PagedListModel.PAGE_SIZE ? List.of()
+                        : storage.loadUserUsage(users.get(users.size() - 1).getUsername(), PagedListModel.PAGE_SIZE);
+            }
+        }
+        writer.finish();
+        return count;
+    }
+
+    private static long exportUser(Storage storage, String username, Writer writer) throws IOException {
+        long count = 0;
+        List<HistoryRecord> page = storage.loadCalculationsAscending(username, null, BLOCK_SIZE);
+        while (!page.isEmpty()) {
+            writer.write(page);
+            count += page.size();
+            page = page.size() < BLOCK_SIZE ? List.of() : storage.loadCalculationsAscending(username, page.get(page.size() - 1), BLOCK_SIZE);
+        }
+        return count;
+    }
+
+    // 导入归档中的全部记录：每块一次批量写入，返回导入的条数。
+    // 直接写入存储后端，不经过 HistoryWriter 的队列
+    static long importInto(Storage storage, ReadableByteChannel channel) throws IOException {
+        Reader reader = new Reader(channel);
+        long count = 0;
+        List<HistoryRecord> block;
+        while ((block = reader.next()) != null) {
+            storage.saveCalculations(block);
+            count += block.size();
+        }
+        return count;
+    }
+
+    // 按块写入归档，write 的每次调用写出一块（超过 BLOCK_SIZE 条时拆分），缓冲区在块之间复用
+    static final class Writer {
+        private final WritableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+
+        Writer(WritableByteChannel channel) throws IOException {
+            this.channel = channel;
+            buffer.putInt(MAGIC).put(VERSION);
+            flush();
+        }
+
+        void write(List<HistoryRecord> records) throws IOException {
+            for (int from = 0; from < records.size(); from += BLOCK_SIZE) {
+                writeBlock(records.subList(from, Math.min(records.size(), from + BLOCK_SIZE)));
+            }
+        }
+
+        // 写入结束标记，不关闭通道
+        void finish() throws IOException {
+            buffer.putInt(0);
+            flush();
+        }
+
+        private void writeBlock(List<HistoryRecord> records) throws IOException {
+            int count = records.size();
+            buffer.putInt(0);   // 块的字节数，写完后回填
+            putVarint(count);
+            writeDictionary(records, true);
+            writeDictionary(records, false);
+            long previous = 0;
+            for (HistoryRecord record : records) {
+                long millis = record.getTimestamp().getTime();
+                long delta = millis - previous;
+                putVarint((delta << 1) ^ (delta >> 63));
+                previous = millis;
+            }
+            for (HistoryRecord record : records) {
+                putVarint(record.getTimestamp().getNanos() % NANOS_PER_MILLI);
+            }
+            ensure(count * 8);
+            for (HistoryRecord record : records) {
+                buffer.putDouble(record.getResult());
+            }
+            buffer.putInt(0, buffer.position() - 4);
+            flush();
+        }
+
+        // 字典列：先写块内不同取值的个数和取值（按首次出现的顺序），再写每条记录的下标
+        private void writeDictionary(List<HistoryRecord> records, boolean usernames) {
+            Map<String, Integer> dictionary = new HashMap<>();
+            int[] indexes = new int[records.size()];
+            List<String> values = new ArrayList<>();
+            for (int i = 0; i < indexes.length; i++) {
+                HistoryRecord record = records.get(i);
+                String value = usernames ? record.getUsername() : record.getExpression();
+                Integer index = dictionary.putIfAbsent(value, values.size());
+                if (index == null) {
+                    index = values.size();
+                    values.add(value);
+                }
+                indexes[i] = index;
+            }
+            putVarint(values.size());
+            for (String value : values) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                putVarint(bytes.length);
+                ensure(bytes.length);
+                buffer.put(bytes);
+            }
+            for (int index : indexes) {
+                putVarint(index);
+            }
+        }
+
+        private void putVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer.put((byte) (value | 0x80));
+                value >>>= 7;
+            }
+            buffer.put((byte) value);
+        }
+
+        private void ensure(int bytes) {
+            if (buffer.remaining() < bytes) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + bytes));
+                buffer.flip();
+                buffer = larger.put(buffer);
+            }
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+
+    // 逐块读取归档，缓冲区在块之间复用
+    static final class Reader {
+        private final ReadableByteChannel channel;
+        private ByteBuffer buffer = ByteBuffer.allocate(1 << 16);
+        private boolean finished;
+
+        Reader(ReadableByteChannel channel) throws IOException {
+            this.channel = channel;
+            read(5);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("不是运算记录归档文件");
+            }
+            byte version = buffer.get();
+            if (version != VERSION) {
+                throw new IOException("不支持的归档版本: " + version);
+            }
+        }
+
+        // 读取下一块记录，已到文件末尾时返回 null
+        List<HistoryRecord> next() throws IOException {
+            if (finished) {
+                return null;
+            }
+            read(4);
+            int length = buffer.getInt();
+            if (length == 0) {
+                finished = true;
+                return null;
+            }
+            if (length < 0) {
+                throw new IOException("归档文件已损坏: 块长度 " + length);
+            }
+            read(length);
+            try {
+                return decodeBlock();
+            } catch (BufferUnderflowException | IndexOutOfBoundsException | IllegalArgumentException | NegativeArraySizeException e) {
+                throw new IOException("归档文件已损坏", e);
+            }
+        }
+
+        private List<HistoryRecord> decodeBlock() {
+            int count = getCount(8);   // 每条记录至少有 8 字节的结果
+            String[] usernames = readDictionary(count);
+            String[] expressions = readDictionary(count);
+            long[] millis = new long[count];
+            long previous = 0;
+            for (int i = 0; i < count; i++) {
+                long zigzag = getVarint();
+                previous += (zigzag >>> 1) ^ -(zigzag & 1);
+                millis[i] = previous;
+            }
+            List<HistoryRecord> records = new ArrayList<>(count);
+            Timestamp[] timestamps = new Timestamp[count];
+            for (int i = 0; i < count; i++) {
+                timestamps[i] = new Timestamp(millis[i]);
+                timestamps[i].setNanos(timestamps[i].getNanos() + (int) getVarint());
+            }
+            for (int i = 0; i < count; i++) {
+                records.add(new HistoryRecord(usernames[i], expressions[i], buffer.getDouble(), timestamps[i]));
+            }
+            return records;
+        }
+
+        // 读取一个字典列，返回每条记录的取值
+        private String[] readDictionary(int count) {
+            String[] values = new String[getCount(1)];   // 每个取值至少有 1 字节的长度
+            for (int i = 0; i < values.length; i++) {
+                int length = (int) getVarint();
+                values[i] = new String(buffer.array(), buffer.position(), length, StandardCharsets.UTF_8);
+                buffer.position(buffer.position() + length);
+            }
+            String[] column = new String[count];
+            for (int i = 0; i < count; i++) {
+                column[i] = values[(int) getVarint()];
+            }
+            return column;
+        }
+
+        // 读取块内的计数，超过剩余字节所能容纳的个数时视为损坏，避免按损坏的计数分配数组
+        private int getCount(int minBytes) {
+            long count = getVarint();
+            if (count < 0 || count > buffer.remaining() / minBytes) {
+                throw new IllegalArgumentException("计数超出块长度: " + count);
+            }
+            return (int) count;
+        }
+
+        private long getVarint() {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = buffer.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+                if (shift >= 63) {
+                    throw new IllegalArgumentException("变长整数过长");
+                }
+            }
+        }
+
+        // 从通道中读满 bytes 个字节，之后缓冲区处于读模式。
+        // 缓冲区随读到的数据逐步扩大，损坏的块长度只会导致“不完整”，不会一次分配巨大的缓冲区
+        private void read(int bytes) throws IOException {
+            buffer.clear().limit(Math.min(bytes, buffer.capacity()));
+            while (buffer.position() < bytes) {
+                if (!buffer.hasRemaining()) {
+                    ByteBuffer larger = ByteBuffer.allocate((int) Math.min(bytes, buffer.capacity() * 2L));
+                    buffer.flip();
+                    buffer = larger.put(buffer);
+                    buffer.limit(buffer.capacity());
+                }
+                if (channel.read(buffer) < 0) {
+                    throw new IOException("归档文件不完整");
+                }
+            }
+            buffer.flip();
+        }
+    }
+}
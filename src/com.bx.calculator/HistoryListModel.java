@@ -0,0 +1,18 @@
+package com.bx.calculator;
+
+import java.time.format.DateTimeFormatter;
+
+// 历史记录列表的数据模型，按时间从新到旧分页加载
+public class HistoryListModel extends PagedListModel<HistoryRecord> {
+    private static final long serialVersionUID = 1L;
+    static final DateTimeFormatter FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    public HistoryListModel(PageLoader<HistoryRecord> loader) {
+        super(loader);
+    }
+
+    @Override
+    protected String format(HistoryRecord record) {
+        return record.getTimestamp().toLocalDateTime().format(FORMATTER) + "    " + record.getExpression() + " = " + record.getResult();
+    }
+}
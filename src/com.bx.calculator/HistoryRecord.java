@@ -0,0 +1,44 @@
+package com.bx.calculator;
+
+import java.sql.Timestamp;
+
+// 一条运算记录，对应 calculations 表中的一行
+public class HistoryRecord {
+    private final long id;  // 存储后端中的编号，尚未保存时为 0
+    private final String username;  // 所属用户
+    private final String expression;    // 表达式
+    private final double result;    // 计算结果
+    private final Timestamp timestamp;  // 计算时间
+
+    public HistoryRecord(String username, String expression, double result, Timestamp timestamp) {
+        this(0, username, expression, result, timestamp);
+    }
+
+    public HistoryRecord(long id, String username, String expression, double result, Timestamp timestamp) {
+        this.id = id;
+        this.username = username;
+        this.expression = expression;
+        this.result = result;
+        this.timestamp = timestamp;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public String getExpression() {
+        return expression;
+    }
+
+    public double getResult() {
+        return result;
+    }
+
+    public Timestamp getTimestamp() {
+        return timestamp;
+    }
+}
@@ -0,0 +1,196 @@
+package com.bx.calculator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+// 运算记录的异步写入器：调用线程只负责入队，后台线程按数量或时间阈值批量写入存储后端。
+// 队列中的每个元素是一次提交（单条记录或一批记录），一次提交的记录总在同一次写入中保存，不会被拆开或部分丢弃
+public class HistoryWriter implements AutoCloseable {
+    // 队列已满时的处理方式
+    public enum Backpressure {
+        BLOCK,  // 阻塞调用线程直到有空位
+        DROP,   // 丢弃新记录
+        CALLER_RUNS // 由调用线程直接写入
+    }
+
+    private final Storage storage;
+    private final BlockingQueue<List<HistoryRecord>> queue;
+    private final int batchSize;    // 每批最多写入的记录数
+    private final long flushMillis; // 记录在队列中最长等待的时间
+    private final Backpressure backpressure;
+    private final Thread worker;
+    private volatile boolean running = true;
+    private final ReadWriteLock lifecycle = new ReentrantReadWriteLock();  // 提交时持有读锁，关闭时持有写锁，关闭后不会再有记录入队
+    private final AtomicInteger pending = new AtomicInteger();  // 队列中的记录数
+    private final LongAdder written = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+
+    // capacity 是队列中最多的提交次数
+    public HistoryWriter(Storage storage, int capacity, int batchSize, long flushMillis, Backpressure backpressure) {
+        this.storage = storage;
+        this.queue = new LinkedBlockingQueue<>(capacity); // 入队和出队使用不同的锁，多个会话提交时不与写入线程竞争
+        this.batchSize = batchSize;
+        this.flushMillis = flushMillis;
+        this.backpressure = backpressure;
+        this.worker = new Thread(this::run, "history-writer");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    // 使用系统属性中的配置创建写入器
+    public static HistoryWriter fromSystemProperties(Storage storage) {
+        return new HistoryWriter(storage,
+                Integer.getInteger("calc.history.queueSize", 10000),
+                Integer.getInteger("calc.history.batchSize", 500),
+                Long.getLong("calc.history.flushMillis", 200L),
+                Backpressure.valueOf(System.getProperty("calc.history.backpressure", Backpressure.BLOCK.name())));
+    }
+
+    // 提交一条记录
+    public void submit(HistoryRecord record) {
+        enqueue(List.of(record));
+    }
+
+    // 提交一批记录，整批在同一次写入中保存；达到 batchSize 条的批次由调用线程直接写入，不经过队列
+    public void submitAll(List<HistoryRecord> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        if (records.size() >= batchSize) {
+            write(records);
+            return;
+        }
+        enqueue(List.copyOf(records));
+    }
+
+    private void enqueue(List<HistoryRecord> records) {
+        lifecycle.readLock().lock();
+        try {
+            if (!running) {
+                write(records); // 已关闭时直接写入，避免记录丢失
+                return;
+            }
+            switch (backpressure) {
+                case BLOCK -> {
+                    try {
+                        queue.put(records);
+                        pending.addAndGet(records.size());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        dropped.add(records.size());
+                    }
+                }
+                case DROP -> {
+                    if (queue.offer(records)) {
+                        pending.addAndGet(records.size());
+                    } else {
+                        dropped.add(records.size());
+                    }
+                }
+                case CALLER_RUNS -> {
+                    if (queue.offer(records)) {
+                        pending.addAndGet(records.size());
+                    } else {
+                        write(records);
+                    }
+                }
+            }
+        } finally {
+            lifecycle.readLock().unlock();
+        }
+    }
+
+    // 队列中等待写入的记录数
+    public int pending() {
+        return pending.get();
+    }
+
+    public long getWritten() {
+        return written.sum();
+    }
+
+    public long getDropped() {
+        return dropped.sum();
+    }
+
+    // 停止接收新记录，写完队列中剩余的记录后返回
+    @Override
+    public void close() {
+        lifecycle.writeLock().lock();   // 等待正在入队的提交完成
+        try {
+            running = false;
+        } finally {
+            lifecycle.writeLock().unlock();
+        }
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        List<List<HistoryRecord>> rest = new ArrayList<>();
+        queue.drainTo(rest);    // 写入线程被中断时可能留下未写的记录
+        for (List<HistoryRecord> records : rest) {
+            pending.addAndGet(-records.size());
+            write(records);
+        }
+    }
+
+    private void run() {
+        List<HistoryRecord> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                List<HistoryRecord> first = queue.poll(flushMillis, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                take(batch, first);
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(flushMillis);
+                // 凑满一批或等到时间阈值再写入，一次提交的记录不拆到两批中
+                while (batch.size() < batchSize) {
+                    List<HistoryRecord> next = queue.peek();
+                    if (next != null && batch.size() + next.size() > batchSize) {
+                        break;
+                    }
+                    long remaining = deadline - System.nanoTime();
+                    if (next == null && (remaining <= 0 || !running)) {
+                        break;
+                    }
+                    next = next != null ? queue.poll() : queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    take(batch, next);
+                }
+                write(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                running = false;    // 被中断时尽快写完剩余记录并退出
+            }
+        }
+        if (!batch.isEmpty()) {
+            write(batch);
+        }
+    }
+
+    private void take(List<HistoryRecord> batch, List<HistoryRecord> records) {
+        batch.addAll(records);
+        pending.addAndGet(-records.size());
+    }
+
+    private void write(List<HistoryRecord> records) {
+        try {
+            storage.saveCalculations(records);
+            written.add(records.size());
+        } catch (StorageException e) {
+            dropped.add(records.size());
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.bx.calculator;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+// 为存储后端的每次调用计时：写入 Metrics 中对应操作的延迟分布，并发出 StorageEvent 供 JFR 录制
+class InstrumentedStorage implements Storage {
+    private final Storage storage;
+
+    InstrumentedStorage(Storage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public void initialize() {
+        call("initialize", null, null, () -> {
+            storage.initialize();
+            return null;
+        });
+    }
+
+    @Override
+    public User findUser(String username) {
+        return call("findUser", Metrics.Operation.USER_LOOKUP, username, () -> storage.findUser(username));
+    }
+
+    @Override
+    public boolean insertUser(User user) {
+        return call("insertUser", null, user.getUsername(), () -> storage.insertUser(user));
+    }
+
+    @Override
+    public void updatePassword(String username, String password) {
+        call("updatePassword", null, username, () -> {
+            storage.updatePassword(username, password);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean deleteUser(String username) {
+        return call("deleteUser", null, username, () -> storage.deleteUser(username));
+    }
+
+    @Override
+    public void saveCalculations(List<HistoryRecord> records) {
+        call("saveCalculations", Metrics.Operation.DATABASE_WRITE, null, () -> {
+            storage.saveCalculations(records);
+            return records;
+        });
+    }
+
+    @Override
+    public List<HistoryRecord> loadCalculations(String username, HistoryRecord after, int limit) {
+        return call("loadCalculations", Metrics.Operation.HISTORY_LOAD, username, () -> storage.loadCalculations(username, after, limit));
+    }
+
+    @Override
+    public List<HistoryRecord> loadCalculationsAscending(String username, HistoryRecord after, int limit) {
+        return call("loadCalculationsAscending", Metrics.Operation.HISTORY_LOAD, username, () -> storage.loadCalculationsAscending(username, after, limit));
+    }
+
+    @Override
+    public void deleteCalculations(String username) {
+        call("deleteCalculations", null, username, () -> {
+            storage.deleteCalculations(username);
+            return null;
+        });
+    }
+
+    @Override
+    public UsageSummary loadUsageSummary(int limit, int days) {
+        return call("loadUsageSummary", null, null, () -> storage.loadUsageSummary(limit, days));
+    }
+
+    @Override
+    public List<UserUsage> loadUserUsage(String after, int limit) {
+        return call("loadUserUsage", null, null, () -> storage.loadUserUsage(after, limit));
+    }
+
+    @Override
+    public void close() {
+        storage.close();
+    }
+
+    // 执行一次调用；operation 为 null 时只发出 JFR 事件，不计入 Metrics。返回值是列表时记录其长度
+    private <T> T call(String name, Metrics.Operation operation, String username, Supplier<T> body) {
+        StorageEvent event = new StorageEvent();
+        event.begin();
+        long start = System.nanoTime();
+        boolean success = false;
+        T result = null;
+        try {
+            result = body.get();
+            success = true;
+            return result;
+        } finally {
+            if (operation != null) {
+                Metrics.record(operation, start, success);
+            }
+            event.end();
+            if (event.shouldCommit()) {
+                event.operation = name;
+                event.username = username;
+                event.rows = result instanceof List<?> list ? list.size() : 0;
+                event.success = success;
+                event.commit();
+            }
+        }
+    }
+}
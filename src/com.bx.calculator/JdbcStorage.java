@@ -0,0 +1,458 @@
+package com.bx.calculator;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+// 基于 JDBC（MySQL）的存储后端，所有操作都从连接池借用连接
+public class JdbcStorage implements Storage {
+    private static final int ER_DUP_KEYNAME = 1061; // MySQL：索引已存在
+    private static final int ER_DUP_ENTRY = 1062;   // MySQL：唯一键重复
+    private static final int ER_CANT_DROP_FIELD_OR_KEY = 1091;  // MySQL：要删除的索引不存在
+    // 用户名列的类型：二进制排序规则逐字节比较，区分大小写和末尾空格，与内存中按字符串查找的结果一致
+    private static final String USERNAME_TYPE = "VARCHAR(50) CHARACTER SET utf8mb4 COLLATE utf8mb4_bin NOT NULL";
+
+    private final ConnectionPool connectionPool;
+
+    public JdbcStorage(ConnectionPool connectionPool) {
+        this.connectionPool = connectionPool;
+    }
+
+    public ConnectionPool getConnectionPool() {
+        return connectionPool;
+    }
+
+    // 用户表和运算记录表互不依赖，两组建表、建索引语句使用两个连接同时执行，启动时只等待较慢的一组
+    @Override
+    public void initialize() {
+        CompletableFuture<Void> users = CompletableFuture.runAsync(() -> {
+            createUsersTable(); // 检查并创建用户表
+            useBinaryUsername("users"); // 必须在压缩和建唯一索引之前，否则 alice 和 Alice 会被当作重复用户
+            createUsernameIndex();  // 按用户名查找用户，同时保证用户名唯一
+        });
+        createCalculationsTable();  // 检查并创建运算记录表
+        useBinaryUsername("calculations");  // 与用户表关联时两边的排序规则必须相同
+        createIndex("CREATE INDEX idx_calculations_user_time ON calculations (username, timestamp, id)");  // 历史记录分页
+        try {
+            users.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof StorageException storageException) {
+                throw storageException;
+            }
+            throw e;
+        }
+        createUsageTables();    // 使用统计表，首次建立时从用户表和运算记录表汇总
+    }
+
+    // 创建索引，索引已存在时忽略（MySQL 不支持 CREATE INDEX IF NOT EXISTS）
+    private void createIndex(String query) {
+        try {
+            executeDdl(query);
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ER_DUP_KEYNAME) {
+                throw new StorageException("创建索引失败: " + query, e);
+            }
+        }
+    }
+
+    // 创建用户名唯一索引。旧版本注册时会重复插入用户，建索引因重复数据失败时先压缩用户表再重试，
+    // 索引建成后不会再执行压缩
+    private void createUsernameIndex() {
+        String query = "CREATE UNIQUE INDEX uk_users_username ON users (username)";
+        try {
+            executeDdl(query);
+        } catch (SQLException e) {
+            if (e.getErrorCode() == ER_DUP_ENTRY) {
+                compactUsers();
+                createUsernameIndex();
+                return;
+            } else if (e.getErrorCode() != ER_DUP_KEYNAME) {
+                throw new StorageException("创建索引失败: " + query, e);
+            }
+        }
+        try {
+            executeDdl("DROP INDEX idx_users_username ON users");   // 唯一索引已覆盖旧的普通索引
+        } catch (SQLException e) {
+            if (e.getErrorCode() != ER_CANT_DROP_FIELD_OR_KEY) {
+                throw new StorageException("删除旧索引失败", e);
+            }
+        }
+    }
+
+    // 把旧表中按默认排序规则（不区分大小写和末尾空格）建立的用户名列改为二进制排序规则，已是二进制时不做修改
+    private void useBinaryUsername(String table) {
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("SELECT COLLATION_NAME FROM information_schema.COLUMNS " +
+                    "WHERE TABLE_SCHEMA = DATABASE() AND TABLE_NAME = ? AND COLUMN_NAME = 'username'");
+            statement.setString(1, table);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                if (!resultSet.next() || "utf8mb4_bin".equals(resultSet.getString(1))) {
+                    return;
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException("检查用户名列失败: " + table, e);
+        }
+        executeUpdate("ALTER TABLE " + table + " MODIFY username " + USERNAME_TYPE);
+    }
+
+    // 删除重复的用户行（用户名逐字节相同），每个用户名只保留 id 最大的一行，返回删除的行数。
+    // 旧版本加载用户时同名的后一行覆盖前一行，登录时实际使用的是 id 最大的一行的密码
+    public int compactUsers() {
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            return statement.executeUpdate("DELETE u1 FROM users u1 JOIN users u2 ON BINARY u1.username = BINARY u2.username AND u1.id < u2.id");
+        } catch (SQLException e) {
+            throw new StorageException("压缩用户表失败", e);
+        }
+    }
+
+    private void executeDdl(String query) throws SQLException {
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            statement.executeUpdate(query);
+        }
+    }
+
+    private void createUsersTable() {
+        String createTableQuery = "CREATE TABLE IF NOT EXISTS users (" +
+                "id INT AUTO_INCREMENT PRIMARY KEY," + // 添加自增长的id字段
+                "username " + USERNAME_TYPE + "," +
+                "password VARCHAR(50))";
+        executeUpdate(createTableQuery);
+    }
+
+    private void createCalculationsTable() {
+        String createTableQuery = "CREATE TABLE IF NOT EXISTS calculations (" +
+                "id INT AUTO_INCREMENT PRIMARY KEY," +
+                "username " + USERNAME_TYPE + "," +
+                "expression VARCHAR(255) NOT NULL," +
+                "result DOUBLE NOT NULL," +
+                "timestamp TIMESTAMP NOT NULL)";
+        executeUpdate(createTableQuery);
+    }
+
+    // 使用统计表：按用户、按表达式、按天累计的运算次数，写入运算记录时在同一事务中增量更新，
+    // 管理员面板只按主键或次数索引读取少量行，不扫描 calculations
+    private void createUsageTables() {
+        executeUpdate("CREATE TABLE IF NOT EXISTS user_usage (" +
+                "username " + USERNAME_TYPE + " PRIMARY KEY," +
+                "calculations BIGINT NOT NULL," +
+                "last_calculation TIMESTAMP NULL," +
+                "INDEX idx_user_usage_calculations (calculations))");
+        useBinaryUsername("user_usage");
+        executeUpdate("CREATE TABLE IF NOT EXISTS expression_usage (" +
+                "expression VARCHAR(255) PRIMARY KEY," +
+                "calculations BIGINT NOT NULL," +
+                "INDEX idx_expression_usage_calculations (calculations))");
+        executeUpdate("CREATE TABLE IF NOT EXISTS daily_usage (" +
+                "day DATE PRIMARY KEY," +
+                "calculations BIGINT NOT NULL)");
+        backfillUsage();
+    }
+
+    // 统计表刚建立而已有运算记录时，从 calculations 汇总一次；之后只做增量更新。
+    // expression_usage 和 daily_usage 的行只增不删，两者都为空说明尚未汇总过；user_usage 在删除用户时会变空，不能作为依据。
+    // 汇总前先清空三张表，中途失败整体回滚，重新执行的结果相同
+    private void backfillUsage() {
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            try (ResultSet resultSet = statement.executeQuery("SELECT EXISTS (SELECT 1 FROM expression_usage) OR EXISTS (SELECT 1 FROM daily_usage), " +
+                    "EXISTS (SELECT 1 FROM calculations)")) {
+                if (!resultSet.next() || resultSet.getBoolean(1) || !resultSet.getBoolean(2)) {
+                    return;
+                }
+            }
+            connection.getConnection().setAutoCommit(false);
+            statement.executeUpdate("DELETE FROM user_usage");
+            statement.executeUpdate("DELETE FROM expression_usage");
+            statement.executeUpdate("DELETE FROM daily_usage");
+            statement.executeUpdate("INSERT INTO user_usage (username, calculations, last_calculation) " +
+                    "SELECT c.username, COUNT(*), MAX(c.timestamp) FROM calculations c JOIN users u ON u.username = c.username GROUP BY c.username");
+            statement.executeUpdate("INSERT INTO expression_usage (expression, calculations) " +
+                    "SELECT expression, COUNT(*) FROM calculations GROUP BY expression");
+            statement.executeUpdate("INSERT INTO daily_usage (day, calculations) " +
+                    "SELECT DATE(timestamp), COUNT(*) FROM calculations GROUP BY DATE(timestamp)");
+            connection.getConnection().commit();
+            System.out.println("使用统计表已从现有运算记录生成");
+        } catch (SQLException e) {
+            throw new StorageException("生成使用统计失败", e);
+        }
+    }
+
+    private void executeUpdate(String query) {
+        try {
+            executeDdl(query);
+        } catch (SQLException e) {
+            throw new StorageException("执行失败: " + query, e);
+        }
+    }
+
+    // 用户名区分大小写和末尾空格。列已改为二进制排序规则，逐字比较只是防止在迁移前的旧表上返回其他写法的用户
+    @Override
+    public User findUser(String username) {
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("SELECT username, password FROM users WHERE username = ?");
+            statement.setString(1, username);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    if (resultSet.getString(1).equals(username)) {
+                        return new User(resultSet.getString(1), resultSet.getString(2));
+                    }
+                }
+                return null;
+            }
+        } catch (SQLException e) {
+            throw new StorageException("查找用户失败", e);
+        }
+    }
+
+    @Override
+    public void updatePassword(String username, String password) {
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("UPDATE users SET password = ? WHERE username = ?");
+            statement.setString(1, password);
+            statement.setString(2, username);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new StorageException("修改密码失败", e);
+        }
+    }
+
+    // 依靠唯一索引保证原子性：并发注册同一用户名时只有一个 INSERT 成功
+    @Override
+    public boolean insertUser(User user) {
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("INSERT INTO users (username, password) VALUES (?, ?)");
+            statement.setString(1, user.getUsername());
+            statement.setString(2, user.getPassword());
+            statement.executeUpdate();
+            return true;
+        } catch (SQLException e) {
+            if (e.getErrorCode() == ER_DUP_ENTRY) {
+                return false;
+            }
+            throw new StorageException("保存用户失败", e);
+        }
+    }
+
+    @Override
+    public boolean deleteUser(String username) {
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("DELETE FROM users WHERE username = ?");
+            statement.setString(1, username);
+            boolean deleted = statement.executeUpdate() > 0;
+            PreparedStatement usage = connection.prepare("DELETE FROM user_usage WHERE username = ?");
+            usage.setString(1, username);
+            usage.executeUpdate();
+            return deleted;
+        } catch (SQLException e) {
+            throw new StorageException("删除用户失败", e);
+        }
+    }
+
+    // 运算记录和使用统计在同一事务中写入。统计先在内存中按键合并，每个键只更新一次，
+    // 键按顺序更新，并发写入时加锁顺序一致
+    @Override
+    public void saveCalculations(List<HistoryRecord> records) {
+        Map<String, UserUsage> users = new TreeMap<>();
+        Map<String, Long> expressions = new TreeMap<>();
+        Map<LocalDate, Long> days = new TreeMap<>();
+        for (HistoryRecord record : records) {
+            Timestamp timestamp = record.getTimestamp();
+            users.merge(record.getUsername(), new UserUsage(record.getUsername(), 1, timestamp), (a, b) -> new UserUsage(a.getUsername(),
+                    a.getCalculations() + b.getCalculations(), a.getLastCalculation().after(b.getLastCalculation()) ? a.getLastCalculation() : b.getLastCalculation()));
+            expressions.merge(record.getExpression(), 1L, Long::sum);
+            days.merge(timestamp.toLocalDateTime().toLocalDate(), 1L, Long::sum);
+        }
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            connection.getConnection().setAutoCommit(false);
+            PreparedStatement statement = connection.prepare("INSERT INTO calculations (username, expression, result, timestamp) VALUES (?, ?, ?, ?)");
+            for (HistoryRecord record : records) {
+                statement.setString(1, record.getUsername());
+                statement.setString(2, record.getExpression());
+                statement.setDouble(3, record.getResult());
+                statement.setTimestamp(4, record.getTimestamp());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+
+            statement = connection.prepare("INSERT INTO user_usage (username, calculations, last_calculation) VALUES (?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE calculations = calculations + VALUES(calculations), " +
+                    "last_calculation = GREATEST(COALESCE(last_calculation, VALUES(last_calculation)), VALUES(last_calculation))");
+            for (UserUsage usage : users.values()) {
+                statement.setString(1, usage.getUsername());
+                statement.setLong(2, usage.getCalculations());
+                statement.setTimestamp(3, usage.getLastCalculation());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+
+            statement = connection.prepare("INSERT INTO expression_usage (expression, calculations) VALUES (?, ?) " +
+                    "ON DUPLICATE KEY UPDATE calculations = calculations + VALUES(calculations)");
+            for (Map.Entry<String, Long> entry : expressions.entrySet()) {
+                statement.setString(1, entry.getKey());
+                statement.setLong(2, entry.getValue());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+
+            statement = connection.prepare("INSERT INTO daily_usage (day, calculations) VALUES (?, ?) " +
+                    "ON DUPLICATE KEY UPDATE calculations = calculations + VALUES(calculations)");
+            for (Map.Entry<LocalDate, Long> entry : days.entrySet()) {
+                statement.setDate(1, Date.valueOf(entry.getKey()));
+                statement.setLong(2, entry.getValue());
+                statement.addBatch();
+            }
+            statement.executeBatch();
+            connection.getConnection().commit();
+        } catch (SQLException e) {
+            throw new StorageException("保存运算记录失败", e);
+        }
+    }
+
+    // 沿 (username, timestamp, id) 索引倒序扫描，只读取 limit 行
+    @Override
+    public List<HistoryRecord> loadCalculations(String username, HistoryRecord after, int limit) {
+        List<HistoryRecord> records = new ArrayList<>(limit);
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement;
+            if (after == null) {
+                statement = connection.prepare("SELECT id, expression, result, timestamp FROM calculations " +
+                        "WHERE username = ? ORDER BY timestamp DESC, id DESC LIMIT ?");
+                statement.setString(1, username);
+                statement.setInt(2, limit);
+            } else {
+                statement = connection.prepare("SELECT id, expression, result, timestamp FROM calculations " +
+                        "WHERE username = ? AND (timestamp < ? OR (timestamp = ? AND id < ?)) ORDER BY timestamp DESC, id DESC LIMIT ?");
+                statement.setString(1, username);
+                statement.setTimestamp(2, after.getTimestamp());
+                statement.setTimestamp(3, after.getTimestamp());
+                statement.setLong(4, after.getId());
+                statement.setInt(5, limit);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    records.add(new HistoryRecord(resultSet.getLong(1), username, resultSet.getString(2), resultSet.getDouble(3), resultSet.getTimestamp(4)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException("加载运算记录失败", e);
+        }
+        return records;
+    }
+
+    // 沿 (username, timestamp, id) 索引正序扫描，只读取 limit 行
+    @Override
+    public List<HistoryRecord> loadCalculationsAscending(String username, HistoryRecord after, int limit) {
+        List<HistoryRecord> records = new ArrayList<>(limit);
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement;
+            if (after == null) {
+                statement = connection.prepare("SELECT id, expression, result, timestamp FROM calculations " +
+                        "WHERE username = ? ORDER BY timestamp, id LIMIT ?");
+                statement.setString(1, username);
+                statement.setInt(2, limit);
+            } else {
+                statement = connection.prepare("SELECT id, expression, result, timestamp FROM calculations " +
+                        "WHERE username = ? AND (timestamp > ? OR (timestamp = ? AND id > ?)) ORDER BY timestamp, id LIMIT ?");
+                statement.setString(1, username);
+                statement.setTimestamp(2, after.getTimestamp());
+                statement.setTimestamp(3, after.getTimestamp());
+                statement.setLong(4, after.getId());
+                statement.setInt(5, limit);
+            }
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    records.add(new HistoryRecord(resultSet.getLong(1), username, resultSet.getString(2), resultSet.getDouble(3), resultSet.getTimestamp(4)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException("加载运算记录失败", e);
+        }
+        return records;
+    }
+
+    @Override
+    public void deleteCalculations(String username) {
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("DELETE FROM calculations WHERE username = ?");
+            statement.setString(1, username);
+            statement.executeUpdate();
+        } catch (SQLException e) {
+            throw new StorageException("删除运算记录失败", e);
+        }
+    }
+
+    // 三个查询都沿索引读取至多 limit 或 days 行
+    @Override
+    public UsageSummary loadUsageSummary(int limit, int days) {
+        List<UserUsage> topUsers = new ArrayList<>(limit);
+        Map<String, Long> topExpressions = new LinkedHashMap<>();
+        SortedMap<LocalDate, Long> daily = new TreeMap<>();
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("SELECT username, calculations, last_calculation FROM user_usage " +
+                    "ORDER BY calculations DESC LIMIT ?");
+            statement.setInt(1, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    topUsers.add(new UserUsage(resultSet.getString(1), resultSet.getLong(2), resultSet.getTimestamp(3)));
+                }
+            }
+            statement = connection.prepare("SELECT expression, calculations FROM expression_usage ORDER BY calculations DESC LIMIT ?");
+            statement.setInt(1, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    topExpressions.put(resultSet.getString(1), resultSet.getLong(2));
+                }
+            }
+            statement = connection.prepare("SELECT day, calculations FROM daily_usage WHERE day > ? ORDER BY day");
+            statement.setDate(1, Date.valueOf(LocalDate.now().minusDays(days)));
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    daily.put(resultSet.getDate(1).toLocalDate(), resultSet.getLong(2));
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException("加载使用统计失败", e);
+        }
+        return new UsageSummary(topUsers, topExpressions, daily);
+    }
+
+    // 沿用户名唯一索引翻页，每个用户按主键关联一行统计
+    @Override
+    public List<UserUsage> loadUserUsage(String after, int limit) {
+        List<UserUsage> users = new ArrayList<>(limit);
+        try (ConnectionPool.PooledConnection connection = connectionPool.borrow()) {
+            PreparedStatement statement = connection.prepare("SELECT u.username, s.calculations, s.last_calculation FROM users u " +
+                    "LEFT JOIN user_usage s ON s.username = u.username WHERE u.username > ? ORDER BY u.username LIMIT ?");
+            statement.setString(1, after == null ? "" : after);
+            statement.setInt(2, limit);
+            try (ResultSet resultSet = statement.executeQuery()) {
+                while (resultSet.next()) {
+                    users.add(new UserUsage(resultSet.getString(1), resultSet.getLong(2), resultSet.getTimestamp(3)));
+                }
+            }
+        } catch (SQLException e) {
+            throw new StorageException("加载用户列表失败", e);
+        }
+        return users;
+    }
+
+    @Override
+    public void close() {
+        connectionPool.close();
+    }
+}
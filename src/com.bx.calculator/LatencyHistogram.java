@@ -0,0 +1,68 @@
+package com.bx.calculator;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// 无锁延迟直方图：以微秒为单位，每个 2 的幂区间再分 8 个子桶，相对误差不超过 12.5%
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    private static final int BUCKETS = (64 - SUB_BITS + 1) << SUB_BITS;
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalMicros = new LongAdder();
+
+    // 记录一次耗时
+    public void record(long nanos) {
+        long micros = Math.max(0, TimeUnit.NANOSECONDS.toMicros(nanos));
+        buckets.incrementAndGet(bucketOf(micros));
+        count.increment();
+        totalMicros.add(micros);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    // 平均耗时（毫秒）
+    public double getMeanMillis() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalMicros.sum() / 1000.0 / n;
+    }
+
+    // 百分位耗时（毫秒），取所在桶的上界，p 取值 0~100
+    public double getPercentileMillis(double p) {
+        long n = count.sum();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = (long) Math.ceil(n * p / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += buckets.get(i);
+            if (seen >= rank) {
+                return upperBoundOf(i) / 1000.0;
+            }
+        }
+        return upperBoundOf(BUCKETS - 1) / 1000.0;
+    }
+
+    private static int bucketOf(long micros) {
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent < SUB_BITS) {
+            return (int) micros;
+        }
+        return ((exponent - SUB_BITS + 1) << SUB_BITS) + (int) ((micros >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1));
+    }
+
+    private static long upperBoundOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >> SUB_BITS) - 1;
+        long lower = (long) (SUB_BUCKETS + (bucket & (SUB_BUCKETS - 1))) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -0,0 +1,397 @@
+package com.bx.calculator;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.channels.OverlappingFileLockException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+// 嵌入式本地存储：所有修改以记录的形式追加到一个内存映射的日志文件中，
+// 启动时重放日志，在内存中建立用户表和按用户分组的运算记录偏移索引。
+// 记录格式为 [int 长度][byte 类型][内容]，长度最后写入，未写完的记录在重放时被忽略。
+// 使用统计同样在重放和写入运算记录时增量累计，只保存在内存中。
+// 打开时对文件加排他锁，同一文件同时只能被一个实例使用，否则各自从自己的位置追加会互相覆盖记录
+public class LocalFileStorage implements Storage {
+    private static final byte PUT_USER = 1;
+    private static final byte DELETE_USER = 2;
+    private static final byte CALCULATION = 3;
+    private static final byte DELETE_CALCULATIONS = 4;
+    private static final int INITIAL_SIZE = 1 << 20;
+
+    private final Path file;
+    private FileChannel channel;
+    private FileLock lock;
+    private MappedByteBuffer buffer;
+    private int position;   // 下一条记录的写入位置
+    private final TreeMap<String, User> users = new TreeMap<>();   // 按用户名排序，用户列表按名称翻页
+    private final Map<String, List<Entry>> calculations = new HashMap<>();  // 用户名 -> 运算记录，按 (时间, 文件偏移) 排序
+    private final Map<String, UserUsage> userUsage = new HashMap<>();
+    private final Map<String, Long> expressionUsage = new HashMap<>();
+    private final TreeMap<LocalDate, Long> dailyUsage = new TreeMap<>();
+
+    public LocalFileStorage(Path file) {
+        this.file = file;
+    }
+
+    @Override
+    public synchronized void initialize() {
+        if (channel != null) {
+            return;
+        }
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            lock = tryLock(channel);
+            if (lock == null) {
+                channel.close();
+                channel = null;
+                throw new StorageException("本地存储正被其他进程使用: " + file, null);
+            }
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, Math.max(INITIAL_SIZE, channel.size()));
+            replay();
+        } catch (IOException e) {
+            throw new StorageException("打开本地存储失败: " + file, e);
+        }
+    }
+
+    // 文件已被其他进程或本进程中的其他实例锁定时返回 null
+    private static FileLock tryLock(FileChannel channel) throws IOException {
+        try {
+            return channel.tryLock();
+        } catch (OverlappingFileLockException e) {
+            return null;
+        }
+    }
+
+    // 重放日志，重建内存索引
+    private void replay() {
+        position = 0;
+        while (position + 5 <= buffer.capacity()) {
+            int length = buffer.getInt(position);
+            if (length <= 0 || position + 4 + length > buffer.capacity()) {
+                break;
+            }
+            int offset = position + 4;
+            byte type = buffer.get(offset);
+            buffer.position(offset + 1);
+            switch (type) {
+                case PUT_USER -> {
+                    String username = readString();
+                    users.put(username, new User(username, readString()));
+                }
+                case DELETE_USER -> {
+                    String username = readString();
+                    users.remove(username);
+                    userUsage.remove(username);
+                }
+                case CALCULATION -> {
+                    String username = readString();
+                    String expression = readString();
+                    buffer.getDouble();
+                    Timestamp timestamp = new Timestamp(buffer.getLong());
+                    timestamp.setNanos(buffer.getInt());
+                    index(username, new Entry(timestamp, offset));
+                    count(username, expression, timestamp);
+                }
+                case DELETE_CALCULATIONS -> calculations.remove(readString());
+                default -> throw new StorageException("无法识别的记录类型 " + type + "，位置 " + position, null);
+            }
+            position = offset + length;
+        }
+        clearTail();
+    }
+
+    // 清除最后一条有效记录之后的内容：崩溃时未写完的记录可能留下任意字节，之后写入的较短记录覆盖不了它们，
+    // 残留的字节会被下一次重放当作长度字段。只写入非零的位置，文件末尾未使用的稀疏区域不会被分配
+    private void clearTail() {
+        int capacity = buffer.capacity();
+        int i = position;
+        for (; i < capacity && (i & 7) != 0; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+        for (; i + 8 <= capacity; i += 8) {
+            if (buffer.getLong(i) != 0) {
+                buffer.putLong(i, 0);
+            }
+        }
+        for (; i < capacity; i++) {
+            if (buffer.get(i) != 0) {
+                buffer.put(i, (byte) 0);
+            }
+        }
+    }
+
+    @Override
+    public synchronized User findUser(String username) {
+        User user = users.get(username);
+        return user == null ? null : new User(user.getUsername(), user.getPassword());
+    }
+
+    @Override
+    public synchronized void updatePassword(String username, String password) {
+        if (users.containsKey(username)) {
+            appendUser(new User(username, password));   // 重放时后写入的记录覆盖先前的记录
+        }
+    }
+
+    @Override
+    public synchronized boolean insertUser(User user) {
+        if (users.containsKey(user.getUsername())) {
+            return false;
+        }
+        appendUser(user);
+        return true;
+    }
+
+    private void appendUser(User user) {
+        byte[] username = encode(user.getUsername());
+        byte[] password = encode(user.getPassword());
+        int offset = begin(PUT_USER, 8 + username.length + password.length);
+        writeString(username);
+        writeString(password);
+        commit(offset);
+        users.put(user.getUsername(), new User(user.getUsername(), user.getPassword()));
+    }
+
+    @Override
+    public synchronized boolean deleteUser(String username) {
+        if (!users.containsKey(username)) {
+            return false;
+        }
+        byte[] name = encode(username);
+        int offset = begin(DELETE_USER, 4 + name.length);
+        writeString(name);
+        commit(offset);
+        users.remove(username);
+        userUsage.remove(username);
+        return true;
+    }
+
+    @Override
+    public synchronized void saveCalculations(List<HistoryRecord> records) {
+        for (HistoryRecord record : records) {
+            byte[] username = encode(record.getUsername());
+            byte[] expression = encode(record.getExpression());
+            int offset = begin(CALCULATION, 8 + username.length + expression.length + 8 + 8 + 4);
+            writeString(username);
+            writeString(expression);
+            buffer.putDouble(record.getResult());
+            buffer.putLong(record.getTimestamp().getTime());
+            buffer.putInt(record.getTimestamp().getNanos());
+            commit(offset);
+            index(record.getUsername(), new Entry(record.getTimestamp(), offset));
+            count(record.getUsername(), record.getExpression(), record.getTimestamp());
+        }
+    }
+
+    // 按 (时间, 文件偏移) 插入用户的记录列表。记录通常按时间顺序写入，插入位置在末尾；导入等乱序写入时需要移动后面的元素
+    private void index(String username, Entry entry) {
+        List<Entry> entries = calculations.computeIfAbsent(username, k -> new ArrayList<>());
+        int index = Collections.binarySearch(entries, entry, Entry.ORDER);
+        entries.add(-index - 1, entry);
+    }
+
+    // 把一条运算记录计入使用统计
+    private void count(String username, String expression, Timestamp timestamp) {
+        userUsage.merge(username, new UserUsage(username, 1, timestamp), (a, b) -> new UserUsage(username, a.getCalculations() + b.getCalculations(),
+                a.getLastCalculation().after(b.getLastCalculation()) ? a.getLastCalculation() : b.getLastCalculation()));
+        expressionUsage.merge(expression, 1L, Long::sum);
+        dailyUsage.merge(timestamp.toLocalDateTime().toLocalDate(), 1L, Long::sum);
+    }
+
+    // 记录与 JdbcStorage 一致按 (时间, 编号) 排列，以文件偏移作为编号，从 after 之前的位置倒序读取
+    @Override
+    public synchronized List<HistoryRecord> loadCalculations(String username, HistoryRecord after, int limit) {
+        List<Entry> entries = calculations.getOrDefault(username, List.of());
+        int end = entries.size();
+        if (after != null) {
+            int index = Collections.binarySearch(entries, new Entry(after.getTimestamp(), (int) after.getId()), Entry.ORDER);
+            end = index >= 0 ? index : -index - 1;
+        }
+        List<HistoryRecord> records = new ArrayList<>(Math.min(limit, end));
+        for (int i = end - 1; i >= 0 && records.size() < limit; i--) {
+            records.add(readCalculation(entries.get(i).offset));
+        }
+        return records;
+    }
+
+    @Override
+    public synchronized List<HistoryRecord> loadCalculationsAscending(String username, HistoryRecord after, int limit) {
+        List<Entry> entries = calculations.getOrDefault(username, List.of());
+        int start = 0;
+        if (after != null) {
+            int index = Collections.binarySearch(entries, new Entry(after.getTimestamp(), (int) after.getId()), Entry.ORDER);
+            start = index >= 0 ? index + 1 : -index - 1;
+        }
+        List<HistoryRecord> records = new ArrayList<>(Math.max(0, Math.min(limit, entries.size() - start)));
+        for (int i = start; i < entries.size() && records.size() < limit; i++) {
+            records.add(readCalculation(entries.get(i).offset));
+        }
+        return records;
+    }
+
+    private HistoryRecord readCalculation(int offset) {
+        buffer.position(offset + 1);
+        String name = readString();
+        String expression = readString();
+        double result = buffer.getDouble();
+        Timestamp timestamp = new Timestamp(buffer.getLong());
+        timestamp.setNanos(buffer.getInt());
+        return new HistoryRecord(offset, name, expression, result, timestamp);
+    }
+
+    @Override
+    public synchronized void deleteCalculations(String username) {
+        byte[] name = encode(username);
+        int offset = begin(DELETE_CALCULATIONS, 4 + name.length);
+        writeString(name);
+        commit(offset);
+        calculations.remove(username);
+    }
+
+    // 统计都在内存中，排名在每个用户和每个不同表达式的计数上选出前 limit 个，不读取运算记录
+    @Override
+    public synchronized UsageSummary loadUsageSummary(int limit, int days) {
+        List<UserUsage> topUsers = top(userUsage.values(), Comparator.comparingLong(UserUsage::getCalculations), limit);
+        Map<String, Long> topExpressions = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : top(expressionUsage.entrySet(), Map.Entry.comparingByValue(), limit)) {
+            topExpressions.put(entry.getKey(), entry.getValue());
+        }
+        return new UsageSummary(topUsers, topExpressions, new TreeMap<>(dailyUsage.tailMap(LocalDate.now().minusDays(days), false)));
+    }
+
+    // 按 comparator 取最大的 limit 个元素，从大到小排列
+    private static <T> List<T> top(Collection<T> values, Comparator<T> comparator, int limit) {
+        PriorityQueue<T> heap = new PriorityQueue<>(comparator);
+        for (T value : values) {
+            heap.offer(value);
+            if (heap.size() > limit) {
+                heap.poll();
+            }
+        }
+        List<T> result = new ArrayList<>(heap);
+        result.sort(comparator.reversed());
+        return result;
+    }
+
+    @Override
+    public synchronized List<UserUsage> loadUserUsage(String after, int limit) {
+        Map<String, User> page = after == null ? users : users.tailMap(after, false);
+        List<UserUsage> result = new ArrayList<>(limit);
+        for (String username : page.keySet()) {
+            if (result.size() == limit) {
+                break;
+            }
+            UserUsage usage = userUsage.get(username);
+            result.add(usage != null ? usage : new UserUsage(username, 0, null));
+        }
+        return result;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            buffer.force();
+            lock.release();
+            channel.close();
+        } catch (IOException e) {
+            throw new StorageException("关闭本地存储失败: " + file, e);
+        } finally {
+            channel = null;
+            lock = null;
+            buffer = null;
+        }
+    }
+
+    // 开始一条记录：确保空间足够并写入类型，返回记录内容的起始偏移
+    private int begin(byte type, int payloadLength) {
+        if (channel == null) {
+            throw new StorageException("本地存储未初始化: " + file, null);
+        }
+        int length = 1 + payloadLength;
+        ensureCapacity(position + 4 + length + 4);  // 额外保留下一条记录的长度字段，由 commit 置 0
+        int offset = position + 4;
+        buffer.put(offset, type);
+        buffer.position(offset + 1);
+        return offset;
+    }
+
+    // 先把下一条记录的长度字段置 0，再写入本条的长度字段使记录生效，重放总是在最后一条完整的记录之后停止
+    private void commit(int offset) {
+        int end = buffer.position();
+        buffer.putInt(end, 0);
+        buffer.putInt(offset - 4, end - offset);
+        position = end;
+    }
+
+    private void ensureCapacity(long required) {
+        if (required <= buffer.capacity()) {
+            return;
+        }
+        if (required > Integer.MAX_VALUE) {
+            throw new StorageException("本地存储文件已超过 2GB: " + file, null);
+        }
+        long size = Math.min(Integer.MAX_VALUE, Math.max(required, (long) buffer.capacity() * 2));
+        try {
+            buffer.force();
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new StorageException("扩展本地存储失败: " + file, e);
+        }
+    }
+
+    private static byte[] encode(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private void writeString(byte[] bytes) {
+        buffer.putInt(bytes.length);
+        buffer.put(bytes);
+    }
+
+    private String readString() {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // 一条运算记录的排序键，时间取自记录，避免排序和查找时读取文件
+    private static final class Entry {
+        static final Comparator<Entry> ORDER = Comparator.comparingLong((Entry entry) -> entry.time)
+                .thenComparingInt(entry -> entry.nanos).thenComparingInt(entry -> entry.offset);
+
+        final long time;
+        final int nanos;
+        final int offset;
+
+        Entry(Timestamp timestamp, int offset) {
+            this.time = timestamp.getTime();
+            this.nanos = timestamp.getNanos();
+            this.offset = offset;
+        }
+    }
+}
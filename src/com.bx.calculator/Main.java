@@ -1,7 +1,73 @@
 package com.bx.calculator;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
 public class Main {
-    public static void main(String[] args) {
-        Controller.main(args);  // 调用控制器的主方法启动计算器应用
+    // 启动时加载的界面类，训练运行只加载不初始化，无显示器的构建环境中也能执行
+    private static final String[] STARTUP_CLASSES = {
+            "com.bx.calculator.Controller", "com.bx.calculator.View", "com.bx.calculator.HistoryListModel",
+            "javax.swing.JFrame", "javax.swing.JPanel", "javax.swing.JButton", "javax.swing.JTextField",
+            "javax.swing.JLabel", "javax.swing.JComboBox", "javax.swing.JCheckBox", "javax.swing.JOptionPane",
+            "javax.swing.Timer", "javax.swing.SwingUtilities", "java.awt.BorderLayout", "java.awt.GridLayout",
+            "com.mysql.cj.jdbc.Driver"
+    };
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals("--server")) {
+            CalculatorServer.run(args);  // 无界面的计算服务
+        } else if (args.length > 0 && args[0].equals("--pipe")) {
+            CalculatorPipe.run(args);   // 无界面的批量计算
+        } else if (args.length > 0 && args[0].equals("--cds-training")) {
+            train();
+        } else if (args.length > 1 && (args[0].equals("--export") || args[0].equals("--import"))) {
+            transfer(args);
+        } else {
+            Controller.main(args);  // 调用控制器的主方法启动计算器应用
+        }
+    }
+
+    // 历史记录的导出和导入：--export 文件 [用户名] 导出指定用户（省略时为全部用户），--import 文件 导入
+    private static void transfer(String[] args) throws IOException {
+        Model model = new Model();
+        try {
+            Path file = Path.of(args[1]);
+            if (args[0].equals("--export")) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    System.out.println("已导出 " + model.exportHistory(args.length > 2 ? args[2] : null, channel) + " 条运算记录");
+                }
+            } else {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                    System.out.println("已导入 " + model.importHistory(channel) + " 条运算记录");
+                }
+            }
+        } finally {
+            model.close();
+        }
+    }
+
+    // 生成 AppCDS 归档的训练运行：以 -XX:ArchiveClassesAtExit 启动，加载启动和计算时用到的类后退出，
+    // 不连接数据库、不显示窗口。打包时由 pom.xml 执行。训练时带有 --add-modules=jdk.incubator.vector，
+    // 使用归档启动时模块参数必须相同，否则 JVM 不使用归档：
+    //   java -XX:SharedArchiveFile=target/calcpro.jsa --add-modules=jdk.incubator.vector -jar target/calcpro-1.1.3-jar-with-dependencies.jar
+    static void train() {
+        ClassLoader loader = Main.class.getClassLoader();
+        for (String name : STARTUP_CLASSES) {
+            try {
+                Class.forName(name, false, loader);
+            } catch (ClassNotFoundException e) {
+                e.printStackTrace();
+            }
+        }
+        Session session = new Session();
+        for (String expression : new String[]{"1+2*3", "(1.5+2)^2/√16", "10!-3", "x = 2", "x*x+1", "1/0"}) {
+            Model.evaluate(expression, null, session.getWorksheet());
+            Model.evaluate(expression, Model.mathContext(34), session.getWorksheet());
+            Model.preview(session, expression);
+        }
+        Model.toBinary("12345.625");
+        Model.toDecimal("1011.01");
     }
 }
@@ -0,0 +1,112 @@
+package com.bx.calculator;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+// 运行时指标：按操作统计调用次数、失败次数和延迟分布，通过 JMX 以 com.bx.calculator:type=Metrics 暴露
+public final class Metrics implements MetricsMXBean {
+    public enum Operation {
+        EVALUATE,       // 表达式求值
+        CONVERT,        // 进制转换
+        LOGIN,          // 登录
+        HISTORY_LOAD,   // 分页读取运算记录
+        DATABASE_WRITE, // 写入运算记录
+        USER_LOOKUP     // 从存储后端查询用户
+    }
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final Metrics INSTANCE = new Metrics();
+
+    private final LatencyHistogram[] latencies = new LatencyHistogram[OPERATIONS.length];
+    private final LongAdder[] errors = new LongAdder[OPERATIONS.length];
+    private boolean registered;
+
+    private Metrics() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latencies[i] = new LatencyHistogram();
+            errors[i] = new LongAdder();
+        }
+    }
+
+    public static Metrics get() {
+        return INSTANCE;
+    }
+
+    // 注册到平台 MBean 服务器，重复调用只注册一次
+    public static synchronized void register() {
+        if (INSTANCE.registered) {
+            return;
+        }
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName("com.bx.calculator:type=Metrics"));
+            INSTANCE.registered = true;
+        } catch (JMException e) {
+            e.printStackTrace();
+        }
+    }
+
+    // 记录一次操作，startNanos 为开始时的 System.nanoTime()
+    public static void record(Operation operation, long startNanos, boolean success) {
+        int i = operation.ordinal();
+        INSTANCE.latencies[i].record(System.nanoTime() - startNanos);
+        if (!success) {
+            INSTANCE.errors[i].increment();
+        }
+    }
+
+    public OperationStats snapshot(Operation operation) {
+        LatencyHistogram latency = latencies[operation.ordinal()];
+        return new OperationStats(latency.getCount(), errors[operation.ordinal()].sum(), latency.getMeanMillis(),
+                latency.getPercentileMillis(50), latency.getPercentileMillis(99));
+    }
+
+    @Override
+    public OperationStats getEvaluate() {
+        return snapshot(Operation.EVALUATE);
+    }
+
+    @Override
+    public OperationStats getConvert() {
+        return snapshot(Operation.CONVERT);
+    }
+
+    @Override
+    public OperationStats getLogin() {
+        return snapshot(Operation.LOGIN);
+    }
+
+    @Override
+    public OperationStats getHistoryLoad() {
+        return snapshot(Operation.HISTORY_LOAD);
+    }
+
+    @Override
+    public OperationStats getDatabaseWrite() {
+        return snapshot(Operation.DATABASE_WRITE);
+    }
+
+    @Override
+    public OperationStats getUserLookup() {
+        return snapshot(Operation.USER_LOOKUP);
+    }
+
+    @Override
+    public long getPlanCacheHits() {
+        PlanCache cache = Model.getPlanCache();
+        return cache == null ? 0 : cache.getHits();
+    }
+
+    @Override
+    public long getPlanCacheMisses() {
+        PlanCache cache = Model.getPlanCache();
+        return cache == null ? 0 : cache.getMisses();
+    }
+
+    @Override
+    public int getPlanCacheSize() {
+        PlanCache cache = Model.getPlanCache();
+        return cache == null ? 0 : cache.size();
+    }
+}
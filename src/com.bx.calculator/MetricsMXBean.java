@@ -0,0 +1,22 @@
+package com.bx.calculator;
+
+// 通过 JMX 暴露的运行时指标，每个操作的统计在 jconsole 中显示为一个复合属性
+public interface MetricsMXBean {
+    OperationStats getEvaluate();
+
+    OperationStats getConvert();
+
+    OperationStats getLogin();
+
+    OperationStats getHistoryLoad();
+
+    OperationStats getDatabaseWrite();
+
+    OperationStats getUserLookup();
+
+    long getPlanCacheHits();
+
+    long getPlanCacheMisses();
+
+    int getPlanCacheSize();
+}
@@ -1,138 +1,184 @@
 package com.bx.calculator;
 
-import java.io.*;
-import java.sql.*;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.math.RoundingMode;
+import java.io.IOException;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 import java.time.LocalDateTime;
-import java.sql.PreparedStatement;
-import java.sql.ResultSet;
 import java.sql.Timestamp;
 
+// 计算器的业务逻辑。用户相关的状态保存在 Session 中，Model 本身只持有各会话共享的、线程安全的组件，
+// 因此多个会话可以并发地计算和记录历史
 public class Model {
-    private User currentUser;   // 当前用户
-    private final Map<String, User> users;  //用户列表
-    private Connection connection; // 数据库连接对象
+    private static final int PLAN_CACHE_SIZE = Integer.getInteger("calc.planCache.size", 1024);  // 为 0 时关闭计划缓存
+    private static final int STREAM_CHUNK = 1000;   // 流式批量计算每块的表达式数，也是每次写入历史记录的条数
+    private static final PlanCache PLAN_CACHE = PLAN_CACHE_SIZE > 0 ? new PlanCache(PLAN_CACHE_SIZE) : null; // 表达式执行计划缓存
+    private final UserCache userCache;  // 按用户名缓存的用户信息
+    private final Storage storage; // 用户和运算记录的存储后端
+    private final HistoryWriter historyWriter;   // 运算记录的异步写入器
+    private final CompletableFuture<Void> storageReady;  // 存储后端的初始化（建表、建索引）完成时完成
+    private volatile String storageError;   // 初始化失败的原因，成功时为 null
 
     public Model() {
-        users = new HashMap<>();    // 初始化用户列表
-        establishDatabaseConnection(); // 建立数据库连接
-        loadUsers();    // 加载用户数据
-        createCalculationsTable();
+        this(false);
     }
 
-    private static String preprocessInput(String inputText) {
-        // 移除空格和多余的字符
-        String expression = inputText.replaceAll("\\s+", "").replaceAll(",", "");
+    // initializeInBackground 为 true 时存储后端在后台线程中初始化，构造方法不等待网络，计算功能立即可用；
+    // 用户和历史记录相关的操作应在 isStorageReady() 之后使用
+    public Model(boolean initializeInBackground) {
+        userCache = new UserCache(Integer.getInteger("calc.userCache.size", 1000),
+                Long.getLong("calc.userCache.ttlSeconds", 300L), TimeUnit.SECONDS);
+        storage = createStorage(); // 只创建后端对象，不连接数据库
+        historyWriter = HistoryWriter.fromSystemProperties(storage);
+        if (initializeInBackground) {
+            storageReady = CompletableFuture.runAsync(() -> {
+                Metrics.register(); // 平台 MBeanServer 的创建需要数百毫秒，也放到后台，指标在注册之前照常记录
+                initializeStorage();
+            }, task -> {
+                Thread thread = new Thread(task, "storage-init");
+                thread.setDaemon(true);
+                thread.start();
+            });
+        } else {
+            Metrics.register();
+            initializeStorage();
+            storageReady = CompletableFuture.completedFuture(null);
+        }
+    }
 
-        // 在运算符两侧添加空格
-        expression = expression.replaceAll("([+\\-*/()√])", " $1 ");
+    // 存储后端是否已完成初始化（初始化失败也视为完成，之后的操作各自报告错误）
+    public boolean isStorageReady() {
+        return storageReady.isDone();
+    }
 
-        return expression;
+    // 存储后端初始化完成（无论成功还是失败）后在初始化线程中执行 action，已完成时立即在当前线程执行
+    public void whenStorageReady(Runnable action) {
+        storageReady.whenComplete((result, error) -> action.run());
     }
 
-    public static double calculate(String expression) {
-        Stack<Double> numberStack = new Stack<>();
-        Stack<Character> operatorStack = new Stack<>();
-
-        for (int i = 0; i < expression.length(); i++) {
-            char ch = expression.charAt(i);
-            if (Character.isDigit(ch)) {
-                StringBuilder numBuilder = new StringBuilder();
-                numBuilder.append(ch);
-
-                // 继续读取数字的其他字符
-                while (i + 1 < expression.length() && (Character.isDigit(expression.charAt(i + 1)) || expression.charAt(i + 1) == '.')) {
-                    numBuilder.append(expression.charAt(i + 1));
-                    i++;
-                }
+    // 存储后端初始化失败的原因，尚未完成或成功时返回 null
+    public String getStorageError() {
+        return storageError;
+    }
 
-                double num = Double.parseDouble(numBuilder.toString());
-                numberStack.push(num);
-            } else if (ch == '(') {
-                operatorStack.push(ch);
-            } else if (ch == ')') {
-                // 处理嵌套的开方运算
-                while (!operatorStack.isEmpty() && operatorStack.peek() != '(') {
-                    performOperation(numberStack, operatorStack);
-                }
-                operatorStack.pop(); // 弹出 '('
-            } else if (isOperator(ch)) {
-                while (!operatorStack.isEmpty() && precedence(operatorStack.peek()) >= precedence(ch)) {
-                    performOperation(numberStack, operatorStack);
-                }
-                operatorStack.push(ch);
-            } else if (ch == '!') { // 处理阶乘运算符
-                double num = numberStack.pop();
-                double factorialResult = performFactorial(String.valueOf((int) num));
-                numberStack.push(factorialResult);
-            } else if (ch == '^') { // 处理幂运算符
-                operatorStack.push(ch);
-            } else if (ch == '√') { // 处理开方运算符
-                operatorStack.push(ch);
-            }
+    // 写完尚未保存的运算记录并关闭存储后端
+    public void close() {
+        if (historyWriter != null) {
+            historyWriter.close();
         }
+        storage.close();
+    }
 
-        while (!operatorStack.isEmpty()) {
-            performOperation(numberStack, operatorStack);
+    // 规范化输入：移除空白字符和千位分隔符，不含这些字符时直接返回原字符串
+    static String normalize(String inputText) {
+        int length = inputText.length();
+        int i = 0;
+        while (i < length && !isIgnorable(inputText.charAt(i))) {
+            i++;
         }
-
-        return numberStack.pop();
+        if (i == length) {
+            return inputText;
+        }
+        StringBuilder sb = new StringBuilder(length);
+        sb.append(inputText, 0, i);
+        for (; i < length; i++) {
+            char ch = inputText.charAt(i);
+            if (!isIgnorable(ch)) {
+                sb.append(ch);
+            }
+        }
+        return sb.toString();
     }
 
-    private static boolean isOperator(char ch) {
-        return ch == '+' || ch == '-' || ch == '*' || ch == '/';
+    // 与正则 [\s,] 匹配的字符
+    private static boolean isIgnorable(char ch) {
+        return ch == ' ' || ch == '\t' || ch == '\n' || ch == '\u000B' || ch == '\f' || ch == '\r' || ch == ',';
     }
 
-    private static int precedence(char ch) {
-        if (ch == '+' || ch == '-') {
-            return 1;
-        } else if (ch == '*' || ch == '/') {
-            return 2;
-        } else if (ch == '^' || ch == '√') {
-            return 3;
+    // 计算表达式的值，相同的表达式只编译一次，之后直接执行缓存的计划；缓存关闭时单遍扫描求值
+    public static double calculate(String expression) {
+        String normalized = normalize(expression);
+        if (PLAN_CACHE == null) {
+            return ExpressionScanner.local().evaluate(normalized);
         }
-        return 0;
+        return PLAN_CACHE.get(normalized).evaluate();
     }
 
-    private static void performOperation(Stack<Double> numberStack, Stack<Character> operatorStack) {
-        char operator = operatorStack.pop();
-        if (operator == '√') {
-            double num = numberStack.pop();
-            double sqrtResult = Math.sqrt(num);
-            numberStack.push(sqrtResult);
-        } else {
-            double num2 = numberStack.pop();
-            double num1 = numberStack.pop();
-            double result = switch (operator) {
-                case '+' -> num1 + num2;
-                case '-' -> num1 - num2;
-                case '*' -> num1 * num2;
-                case '/' -> num1 / num2;
-                case '^' -> Math.pow(num1, num2);
-                default -> 0;
-            };
-            numberStack.push(result);
+    // 计算表达式的值，表达式中的变量从工作表中取值；worksheet 为 null 时与 calculate(String) 相同
+    public static double calculate(String expression, Worksheet worksheet) {
+        if (worksheet == null) {
+            return calculate(expression);
         }
+        ExpressionPlan plan = plan(normalize(expression));
+        return plan.variableCount() == 0 ? plan.evaluate() : plan.evaluate(worksheet.bind(plan));
     }
 
-    // 执行阶乘运算
-    public static long performFactorial(String inputText) {
-        long result = 1;
-        for (long i = 1; i <= Long.parseLong(inputText); i++) {
-            result = result * i;
-        }
-        return result;
+    // 规范化后的表达式的执行计划，优先从缓存中获取
+    static ExpressionPlan plan(String normalized) {
+        return PLAN_CACHE == null ? ExpressionPlan.compile(normalized) : PLAN_CACHE.get(normalized);
+    }
+
+    // 解析表达式，返回可以反复执行的计划，语法错误时抛出异常
+    public static ExpressionPlan compile(String expression) {
+        return plan(normalize(expression));
+    }
+
+    // 按列计算：以 columns 中与变量同名的列作为输入，对每一行计算同一个表达式，不记录历史
+    public static double[] calculateColumns(ExpressionPlan plan, Map<String, double[]> columns) {
+        return ColumnEvaluator.evaluate(plan, columns);
+    }
+
+    // 任意精度模式下计算表达式的值，语法和运算顺序与 double 模式相同
+    public static BigDecimal calculateDecimal(String expression, MathContext mathContext) {
+        return calculateDecimal(expression, mathContext, null);
+    }
+
+    // 任意精度模式下计算表达式的值，表达式中的变量从工作表中取值
+    public static BigDecimal calculateDecimal(String expression, MathContext mathContext, Worksheet worksheet) {
+        return DecimalEvaluator.evaluate(normalize(expression), mathContext, worksheet);
+    }
+
+    // 按有效位数构造计算精度，digits 小于等于 0 时返回 null，表示使用 double 计算
+    public static MathContext mathContext(int digits) {
+        return digits > 0 ? new MathContext(digits, RoundingMode.HALF_EVEN) : null;
+    }
+
+    // 执行计划缓存，供监控命中率使用，缓存关闭时返回 null
+    public static PlanCache getPlanCache() {
+        return PLAN_CACHE;
+    }
+
+    // 执行阶乘运算，返回精确值，输入不是非负整数时抛出异常
+    public static BigInteger performFactorial(String inputText) {
+        return Factorials.exact(Integer.parseInt(inputText.trim()));
     }
 
 
     // 登录用户
-    public User loginUser(String username, String password) {
-        if (users.containsKey(username)) {
-            User user = users.get(username);
-            if (user.getPassword().equals(password)) {
-                currentUser = user;
-                return user;
-            }
+    public User loginUser(Session session, String username, String password) {
+        long start = System.nanoTime();
+        User user = authenticate(username, password);
+        if (user != null) {
+            session.setUser(user);
+        }
+        Metrics.record(Metrics.Operation.LOGIN, start, user != null);
+        return user;
+    }
+
+    // 校验用户名和密码，不改变当前用户
+    public User authenticate(String username, String password) {
+        User user = findUser(username);
+        if (user != null && user.getPassword().equals(password)) {
+            return user;
         }
         return null;
     }
@@ -141,218 +187,355 @@ public class Model {
     public void addUser(String username, String password) {
         if (Objects.equals(username, "root")) {
             throw new IllegalArgumentException("用户名非法！");
-        } else if (users.containsKey(username)) {
+        } else if (findUser(username) != null) {
             throw new IllegalArgumentException("用户已存在，请重新注册！");
         } else if (Objects.equals(username, "") || Objects.equals(password, "")) {
             throw new IllegalArgumentException("注册失败！请检查用户名和密码。");
         } else {
-            User user = new User(username, password);
-            users.put(username, user);
-            saveUsers(); // 保存用户数据到数据库
+            boolean inserted;
+            try {
+                inserted = storage.insertUser(new User(username, password)); // 只写入新用户，用户名唯一由存储后端保证
+            } catch (StorageException e) {
+                e.printStackTrace();
+                throw new IllegalArgumentException("注册失败！请稍后重试。");
+            } finally {
+                userCache.invalidate(username);
+            }
+            if (!inserted) {
+                throw new IllegalArgumentException("用户已存在，请重新注册！");
+            }
         }
     }
 
-    public void deleteUser() {
-        if (currentUser != null) {
-            String usernameToDelete = currentUser.getUsername();
-
-            try (PreparedStatement deleteUserStatement = connection.prepareStatement("DELETE FROM users WHERE username = ?")) {
-                deleteUserStatement.setString(1, usernameToDelete);
-                int deletedRows = deleteUserStatement.executeUpdate();
+    public void deleteUser(Session session) {
+        String usernameToDelete = session.getUsername();
+        if (usernameToDelete != null) {
 
-                if (deletedRows > 0) {
+            try {
+                if (storage.deleteUser(usernameToDelete)) {
                     System.out.println("用户删除成功");
                 } else {
                     System.out.println("用户删除失败");
                 }
-            } catch (SQLException e) {
+            } catch (StorageException e) {
                 e.printStackTrace();
             }
 
-            currentUser = null;
-            users.remove(usernameToDelete);
+            session.setUser(null);
+            userCache.invalidate(usernameToDelete);
         }
     }
 
-    // 获取当前账号
-    public User getCurrentUser() {
-        return currentUser;
-    }
-
-    //判断是否是管理员
-    public String getName() {
-        return currentUser.getUsername();
+    // 创建存储后端：calc.storage=local 时使用本地文件，否则使用 MySQL。连接在第一次使用时建立
+    private static Storage createStorage() {
+        Storage storage;
+        if ("local".equals(System.getProperty("calc.storage", "jdbc"))) {
+            storage = new LocalFileStorage(Path.of(System.getProperty("calc.storage.path", "calc-data/calc.log")));
+        } else {
+            String url = "jdbc:mysql://154.204.178.96:3306/calc?rewriteBatchedStatements=true"; // 替换为你的数据库URL，批量插入合并为多行 INSERT
+            String username = "bx"; // 替换为你的数据库用户名
+            String password = "123456"; // 替换为你的数据库密码
+            storage = new JdbcStorage(new ConnectionPool(url, username, password,
+                    Integer.getInteger("calc.db.poolSize", 4),
+                    Long.getLong("calc.db.timeoutMillis", 5000L)));
+        }
+        return new InstrumentedStorage(storage); // 每次存储调用都计入运行时指标和 JFR 事件
     }
 
-    // 建立数据库连接
-    private void establishDatabaseConnection() {
-        String url = "jdbc:mysql://154.204.178.96:3306/calc"; // 替换为你的数据库URL
-        String username = "bx"; // 替换为你的数据库用户名
-        String password = "123456"; // 替换为你的数据库密码
-
+    // 连接存储后端，检查并创建所需的表
+    private void initializeStorage() {
         try {
-            connection = DriverManager.getConnection(url, username, password);
-            createUsersTable(); // 检查并创建用户表
-        } catch (SQLException e) {
+            storage.initialize(); // 检查并创建用户表和运算记录表
+        } catch (RuntimeException e) {  // 包括 JdbcStorage 并行建表时包装在 CompletionException 中的异常
             e.printStackTrace();
+            Throwable cause = e;
+            while (cause.getCause() != null) {
+                cause = cause.getCause();
+            }
+            storageError = cause.getMessage() != null ? cause.getMessage() : cause.toString();  // 最底层的原因，如连接超时
         }
     }
 
-    // 检查并创建用户表
-    private void createUsersTable() {
-        try (Statement statement = connection.createStatement()) {
-            String createTableQuery = "CREATE TABLE IF NOT EXISTS users (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY," + // 添加自增长的id字段
-                    "username VARCHAR(50) NOT NULL," +
-                    "password VARCHAR(50))";
-            statement.executeUpdate(createTableQuery);
-        } catch (SQLException e) {
+    // 按用户名查找用户，优先使用缓存，未命中时按索引查询一次
+    private User findUser(String username) {
+        try {
+            return userCache.get(username, storage::findUser);
+        } catch (StorageException e) {
             e.printStackTrace();
+            return null;
         }
     }
 
+    // 保存运算记录到数据库，交给后台写入器异步批量写入
+    private void saveCalculationToDatabase(Session session, String expression, double result) {
+        String username = session.getUsername();
+        if (username != null) {
+            historyWriter.submit(new HistoryRecord(username, expression, result, Timestamp.valueOf(LocalDateTime.now())));
+        }
+    }
 
-    // 保存用用户数据
-    private void saveUsers() {
-        try (PreparedStatement statement = connection.prepareStatement("INSERT INTO users (username, password) VALUES (?, ?)")) {
-            for (User user : users.values()) {
-                statement.setString(1, user.getUsername());
-                statement.setString(2, user.getPassword());
-                statement.executeUpdate();
+    // 保存一批运算记录，出错的表达式与单条计算一致不记录
+    void saveCalculationsToDatabase(Session session, List<CalculationResult> results) {
+        String username = session.getUsername();
+        if (username == null) {
+            return;
+        }
+        Timestamp timestamp = Timestamp.valueOf(LocalDateTime.now());
+        List<HistoryRecord> records = new ArrayList<>(results.size());
+        for (CalculationResult result : results) {
+            if (!result.isError()) {
+                records.add(new HistoryRecord(username, result.getExpression(), result.getResult(), timestamp));
             }
-        } catch (SQLException e) {
-            e.printStackTrace();
         }
+        historyWriter.submitAll(records);
     }
 
-    // 从文件加载用户数据
-    private void loadUsers() {
-        try (Statement statement = connection.createStatement();
-             ResultSet resultSet = statement.executeQuery("SELECT * FROM users")) {
+    // 计算单个表达式，异常转换为错误结果；耗时计入运行时指标，开启 JFR 录制时发出 EvaluationEvent
+    public static CalculationResult evaluate(String inputText) {
+        return evaluate(inputText, null);
+    }
+
+    // 按指定精度计算单个表达式，mathContext 为 null 时使用 double
+    public static CalculationResult evaluate(String inputText, MathContext mathContext) {
+        return evaluate(inputText, mathContext, null);
+    }
 
-            while (resultSet.next()) {
-                String username = resultSet.getString("username");
-                String password = resultSet.getString("password");
-                users.put(username, new User(username, password));
+    // 计算单个表达式或执行赋值语句 "名称 = 表达式"，变量保存在 worksheet 中；赋值语句总是按 double 计算。
+    // worksheet 为 null 时不能使用变量
+    public static CalculationResult evaluate(String inputText, MathContext mathContext, Worksheet worksheet) {
+        return evaluate(inputText, mathContext, worksheet, true);
+    }
+
+    // 不经过执行计划缓存，单遍扫描求值：批量计算中的表达式大多只出现一次，编译和缓存执行计划的开销无法通过复用收回
+    public static CalculationResult evaluateOnce(String inputText, MathContext mathContext) {
+        return evaluate(inputText, mathContext, null, false);
+    }
+
+    private static CalculationResult evaluate(String inputText, MathContext mathContext, Worksheet worksheet, boolean cached) {
+        EvaluationEvent event = new EvaluationEvent();
+        event.begin();
+        long start = System.nanoTime();
+        CalculationResult result;
+        try {
+            if (worksheet != null && Worksheet.isAssignment(inputText)) {
+                result = CalculationResult.success(inputText, worksheet.assign(inputText));
+            } else {
+                result = mathContext != null
+                        ? CalculationResult.success(inputText, calculateDecimal(inputText, mathContext, worksheet))
+                        : CalculationResult.success(inputText, cached ? calculate(inputText, worksheet) : ExpressionScanner.local().evaluate(normalize(inputText)));
             }
+        } catch (Exception e) {
+            result = CalculationResult.failure(inputText, e.getMessage());
+        }
+        Metrics.record(Metrics.Operation.EVALUATE, start, !result.isError());
+        event.end();
+        if (event.shouldCommit()) {
+            event.expression = inputText;
+            event.success = !result.isError();
+            event.commit();
+        }
+        return result;
+    }
 
-        } catch (SQLException e) {
-            e.printStackTrace();
+    // 计算表达式，或者给会话工作表中的变量赋值
+    public String calculateExpression(Session session, String inputText) {
+        CalculationResult result = evaluate(inputText, session.getMathContext(), session.getWorksheet());
+        if (!result.isError()) {
+            saveCalculationToDatabase(session, inputText, result.getResult()); // 保存计算历史到数据库
         }
+        return result.toString();
     }
 
-    private String getHistoryFilePath() {
-        String path = "history.dat";
-        if (currentUser != null) {
-            path = currentUser.getUsername() + path;
+    // 实时预览：按会话的精度计算输入，不记录历史、不计入运行时指标，也不修改变量；赋值语句预览等号右侧的值
+    public static String preview(Session session, String inputText) {
+        String expression = Worksheet.isAssignment(inputText) ? inputText.substring(inputText.indexOf('=') + 1) : inputText;
+        MathContext mathContext = session.getMathContext();
+        try {
+            return mathContext == null
+                    ? CalculationResult.success(inputText, calculate(expression, session.getWorksheet())).toString()
+                    : CalculationResult.success(inputText, calculateDecimal(expression, mathContext, session.getWorksheet())).toString();
+        } catch (Exception e) {
+            return CalculationResult.failure(inputText, e.getMessage()).toString();
         }
-        return path;
-    }
-
-    // 保存运算记录到数据库
-    private void saveCalculationToDatabase(String expression, double result) {
-        if (currentUser != null) {
-            String insertQuery = "INSERT INTO calculations (username, expression, result, timestamp) VALUES (?, ?, ?, ?)";
-            try (PreparedStatement statement = connection.prepareStatement(insertQuery)) {
-                statement.setString(1, currentUser.getUsername());
-                statement.setString(2, expression);
-                statement.setDouble(3, result);
-                statement.setTimestamp(4, Timestamp.valueOf(LocalDateTime.now()));
-                statement.executeUpdate();
-            } catch (SQLException e) {
-                e.printStackTrace();
+    }
+
+    // 批量计算表达式：在 fork-join 线程池上并行计算，结果按输入顺序返回，整批历史记录一次写入
+    public List<CalculationResult> calculateAll(Session session, List<String> expressions) {
+        MathContext mathContext = session.getMathContext();
+        List<CalculationResult> results = expressions.parallelStream()
+                .map(expression -> evaluate(expression, mathContext))
+                .toList();
+        saveCalculationsToDatabase(session, results);
+        return results;
+    }
+
+    // 流式批量计算，适合结果数量很大的场景：按消费进度每次从输入中取 STREAM_CHUNK 个表达式并行计算，
+    // 结果保持输入顺序，每块的历史记录一次写入；只消费了一部分时，未取出的表达式不会被计算或记录
+    public Stream<CalculationResult> calculateAll(Session session, Stream<String> expressions) {
+        MathContext mathContext = session.getMathContext();
+        Iterator<String> input = expressions.iterator();
+        Iterator<List<CalculationResult>> chunks = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return input.hasNext();
+            }
+
+            @Override
+            public List<CalculationResult> next() {
+                List<String> chunk = new ArrayList<>(STREAM_CHUNK);
+                while (input.hasNext() && chunk.size() < STREAM_CHUNK) {
+                    chunk.add(input.next());
+                }
+                List<CalculationResult> results = chunk.parallelStream()
+                        .map(expression -> evaluate(expression, mathContext))
+                        .toList();
+                saveCalculationsToDatabase(session, results);
+                return results;
             }
+        };
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(chunks, Spliterator.ORDERED), false)
+                .flatMap(List::stream)
+                .onClose(expressions::close);
+    }
+
+    // 分页加载当前用户的计算历史，按时间从新到旧排列；after 为上一页的最后一条记录
+    public List<HistoryRecord> loadHistoryPage(Session session, HistoryRecord after, int limit) {
+        String username = session.getUsername();
+        if (username == null) {
+            return List.of();
         }
+        return loadHistoryPage(username, after, limit);
     }
 
-    // 计算表达式
-    public String calculateExpression(String inputText) {
+    // 分页加载指定用户的计算历史
+    public List<HistoryRecord> loadHistoryPage(String username, HistoryRecord after, int limit) {
         try {
-            String expression = preprocessInput(inputText);
-            double result = calculate(expression);
-            saveCalculationToDatabase(inputText, result); // 保存计算历史到数据库
-            return String.valueOf(result);
-        } catch (Exception e) {
-            return "Error: " + e.getMessage();
+            return storage.loadCalculations(username, after, limit);
+        } catch (StorageException e) {
+            e.printStackTrace();
+            return List.of();
         }
     }
 
-    // 检查并创建运算记录表
-    private void createCalculationsTable() {
-        try (Statement statement = connection.createStatement()) {
-            String createTableQuery = "CREATE TABLE IF NOT EXISTS calculations (" +
-                    "id INT AUTO_INCREMENT PRIMARY KEY," +
-                    "username VARCHAR(50) NOT NULL," +
-                    "expression VARCHAR(255) NOT NULL," +
-                    "result DOUBLE NOT NULL," +
-                    "timestamp TIMESTAMP NOT NULL)";
-            statement.executeUpdate(createTableQuery);
-        } catch (SQLException e) {
+    // 管理员面板的使用概览，读取失败时返回空的概览
+    public UsageSummary loadUsageSummary(int limit, int days) {
+        try {
+            return storage.loadUsageSummary(limit, days);
+        } catch (StorageException e) {
             e.printStackTrace();
+            return new UsageSummary(List.of(), Map.of(), new TreeMap<>());
         }
     }
 
-    // 从文件加载计算历史
-    public List<String> loadHistory() {
-        String path = getHistoryFilePath();
-        List<String> history = new ArrayList<>();
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            String line;
-            while ((line = br.readLine()) != null) {
-                history.add(line);
-            }
-        } catch (IOException e) {
+    // 分页列出全部用户及其运算次数
+    public List<UserUsage> loadUserUsagePage(UserUsage after, int limit) {
+        try {
+            return storage.loadUserUsage(after == null ? null : after.getUsername(), limit);
+        } catch (StorageException e) {
             e.printStackTrace();
-            return null;
+            return List.of();
         }
-        return history;
+    }
+
+    // 把指定用户（username 为 null 时为全部用户）的运算记录导出为二进制归档，返回导出的条数
+    public long exportHistory(String username, WritableByteChannel channel) throws IOException {
+        return HistoryArchive.export(storage, username, channel);
+    }
+
+    // 导入二进制归档中的运算记录，按块批量写入，返回导入的条数
+    public long importHistory(ReadableByteChannel channel) throws IOException {
+        return HistoryArchive.importInto(storage, channel);
     }
 
     //清除历史记录
-    public void clearHistory() {
-        String path = getHistoryFilePath();
-        try {
-            File file = new File(path);
-            FileWriter writer = new FileWriter(file);
-            writer.write("");
-            writer.close();
-        } catch (IOException e) {
-            e.printStackTrace();
+    public void clearHistory(Session session) {
+        String username = session.getUsername();
+        if (username != null) {
+            try {
+                storage.deleteCalculations(username);
+            } catch (StorageException e) {
+                e.printStackTrace();
+            }
         }
     }
 
-    // 将十进制数字转换为二进制
-    public String decimalToBinary(String inputText) {
+    // 将十进制数字转换为二进制，输入带 0x、0o、0b 前缀时按对应进制解析
+    public String decimalToBinary(Session session, String inputText) {
         try {
-            int decimal = Integer.parseInt(inputText);
-            String result = inputText + " 的二进制为: " + Integer.toBinaryString(decimal);
-            saveCalculationToDatabase(inputText+"的二进制",decimal);
-            return result;
+            return inputText + " 的二进制为: " + convert(session, inputText, true);
         } catch (NumberFormatException ex) {
             return "错误的输入";
         }
     }
 
-    // 将二进制数字转换为十进制
-    public String binaryToDecimal(String inputText) {
+    // 将二进制数字转换为十进制，输入带 0x、0o、0b 前缀时按对应进制解析
+    public String binaryToDecimal(Session session, String inputText) {
         try {
-            int decimal = Integer.parseInt(inputText, 2);
-            String result = inputText + " 的十进制为: " + decimal;
-            saveCalculationToDatabase(inputText+"的十进制",decimal);
-            return result;
+            return inputText + " 的十进制为: " + convert(session, inputText, false);
         } catch (NumberFormatException ex) {
             return "错误的输入";
         }
     }
 
-    public void logout() {
-        currentUser = null;
+    // 十进制和二进制之间的转换并记录历史，输入无效时抛出 NumberFormatException
+    public String convert(Session session, String inputText, boolean toBinary) {
+        return toBinary ? convert(session, inputText, 10, 2) : convert(session, inputText, 2, 10);
     }
 
-    public boolean changePassword(String oldPassword, String newPassword) {
-        if (currentUser.getPassword().equals(oldPassword)) {
+    // 任意进制（2~36）的转换并记录历史，数字长度不限，可以带小数部分；输入带 0x、0o、0b 前缀时忽略 fromBase。
+    // 记录的结果为该数值最接近的 double
+    public String convert(Session session, String inputText, int fromBase, int toBase) {
+        long start = System.nanoTime();
+        boolean success = false;
+        try {
+            String result = RadixConverter.convertWithPrefix(inputText, fromBase, toBase);
+            if (session.isLoggedIn()) {
+                String decimal = toBase == 10 ? result : RadixConverter.convertWithPrefix(inputText, fromBase, 10);
+                saveCalculationToDatabase(session, inputText + "的" + radixName(toBase), new BigDecimal(decimal).doubleValue());
+            }
+            success = true;
+            return result;
+        } finally {
+            Metrics.record(Metrics.Operation.CONVERT, start, success);
+        }
+    }
+
+    private static String radixName(int base) {
+        return switch (base) {
+            case 2 -> "二进制";
+            case 8 -> "八进制";
+            case 10 -> "十进制";
+            case 16 -> "十六进制";
+            default -> base + "进制";
+        };
+    }
+
+    // 十进制转二进制，输入无效时抛出 NumberFormatException
+    public static String toBinary(String decimalText) {
+        return RadixConverter.convert(decimalText, 10, 2);
+    }
+
+    // 二进制转十进制，输入无效时抛出 NumberFormatException
+    public static String toDecimal(String binaryText) {
+        return RadixConverter.convert(binaryText, 2, 10);
+    }
+
+    public void logout(Session session) {
+        session.setUser(null);
+    }
+
+    public boolean changePassword(Session session, String oldPassword, String newPassword) {
+        User currentUser = session.getUser();
+        if (currentUser != null && currentUser.getPassword().equals(oldPassword)) {
+            try {
+                storage.updatePassword(currentUser.getUsername(), newPassword);
+            } catch (StorageException e) {
+                e.printStackTrace();
+                return false;
+            } finally {
+                userCache.invalidate(currentUser.getUsername());
+            }
             currentUser.setPassword(newPassword);
-            loadUsers();
             return true;
         } else {
             return false;
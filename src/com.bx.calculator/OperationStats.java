@@ -0,0 +1,46 @@
+package com.bx.calculator;
+
+import java.beans.ConstructorProperties;
+
+// 某个操作的统计快照：调用次数、失败次数以及延迟（毫秒）
+public class OperationStats {
+    private final long count;
+    private final long errors;
+    private final double meanMillis;
+    private final double p50Millis;
+    private final double p99Millis;
+
+    @ConstructorProperties({"count", "errors", "meanMillis", "p50Millis", "p99Millis"})
+    public OperationStats(long count, long errors, double meanMillis, double p50Millis, double p99Millis) {
+        this.count = count;
+        this.errors = errors;
+        this.meanMillis = meanMillis;
+        this.p50Millis = p50Millis;
+        this.p99Millis = p99Millis;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getErrors() {
+        return errors;
+    }
+
+    public double getMeanMillis() {
+        return meanMillis;
+    }
+
+    public double getP50Millis() {
+        return p50Millis;
+    }
+
+    public double getP99Millis() {
+        return p99Millis;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("count=%d errors=%d mean=%.3fms p50=%.3fms p99=%.3fms", count, errors, meanMillis, p50Millis, p99Millis);
+    }
+}
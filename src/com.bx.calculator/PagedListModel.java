@@ -0,0 +1,91 @@
+package com.bx.calculator;
+
+import javax.swing.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+// 分页列表的数据模型：按需分页加载，只保存已经滚动到的条目，
+// 配合固定行高的 JList 使用时只渲染可见的行
+@SuppressWarnings("serial")   // 只在当前窗口中使用，不会被序列化；加载器和条目都不可序列化
+public abstract class PagedListModel<T> extends AbstractListModel<String> {
+    public static final int PAGE_SIZE = 100;    // 每页条目数
+
+    // 加载 after 之后的一页，after 为 null 时加载第一页
+    public interface PageLoader<T> {
+        List<T> load(T after, int limit);
+    }
+
+    private final PageLoader<T> loader;
+    private final List<T> items = new ArrayList<>();
+    private boolean loading;    // 是否正在加载下一页
+    private boolean exhausted;  // 是否已经加载完全部条目
+    private int generation;  // 清空后丢弃仍在进行中的加载结果
+
+    protected PagedListModel(PageLoader<T> loader) {
+        this.loader = loader;
+    }
+
+    // 条目的显示文本
+    protected abstract String format(T item);
+
+    @Override
+    public int getSize() {
+        return items.size();
+    }
+
+    @Override
+    public String getElementAt(int index) {
+        return format(items.get(index));
+    }
+
+    // 在后台线程加载下一页，加载完成后在事件分派线程中追加到列表末尾
+    public void loadMore() {
+        if (loading || exhausted) {
+            return;
+        }
+        loading = true;
+        T after = items.isEmpty() ? null : items.get(items.size() - 1);
+        int requestGeneration = generation;
+        new SwingWorker<List<T>, Void>() {
+            @Override
+            protected List<T> doInBackground() {
+                return loader.load(after, PAGE_SIZE);
+            }
+
+            @Override
+            protected void done() {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loading = false;
+                try {
+                    List<T> page = get();
+                    if (page.size() < PAGE_SIZE) {
+                        exhausted = true;
+                    }
+                    if (!page.isEmpty()) {
+                        int first = items.size();
+                        items.addAll(page);
+                        fireIntervalAdded(PagedListModel.this, first, items.size() - 1);
+                    }
+                } catch (InterruptedException | ExecutionException e) {
+                    e.printStackTrace();
+                    exhausted = true;
+                }
+            }
+        }.execute();
+    }
+
+    // 清空列表，数据被删除后调用
+    public void clear() {
+        generation++;
+        loading = false;
+        exhausted = true;
+        int size = items.size();
+        if (size > 0) {
+            items.clear();
+            fireIntervalRemoved(this, 0, size - 1);
+        }
+    }
+}
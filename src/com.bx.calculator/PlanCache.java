@@ -0,0 +1,109 @@
+package com.bx.calculator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+// 表达式执行计划的 LRU 缓存，以规范化后的表达式为键，线程安全。
+// 按键的哈希分为多个段，每段各自加锁并独立做 LRU 淘汰，并发访问不同段的线程互不阻塞
+public final class PlanCache {
+    private static final int MAX_SEGMENTS = 16;
+
+    private final int capacity; // 最多缓存的计划数
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public PlanCache(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("缓存容量必须大于 0");
+        }
+        this.capacity = capacity;
+        int segmentCount = Integer.highestOneBit(Math.min(MAX_SEGMENTS, capacity));
+        int segmentCapacity = (capacity + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    // 获取表达式的执行计划，未命中时编译并放入缓存
+    public ExpressionPlan get(String expression) {
+        Segment segment = segmentFor(expression);
+        ExpressionPlan plan;
+        synchronized (segment) {
+            plan = segment.get(expression);
+        }
+        if (plan != null) {
+            hits.increment();
+            return plan;
+        }
+        misses.increment();
+        plan = ExpressionPlan.compile(expression); // 在锁外编译，编译失败的表达式不会进入缓存
+        synchronized (segment) {
+            ExpressionPlan existing = segment.putIfAbsent(expression, plan);
+            return existing != null ? existing : plan;
+        }
+    }
+
+    private Segment segmentFor(String expression) {
+        int h = expression.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    // 一个缓存段：accessOrder 为 true 时按访问顺序排列，最久未使用的条目位于表头
+    private final class Segment extends LinkedHashMap<String, ExpressionPlan> {
+        private static final long serialVersionUID = 1L;
+
+        private final int segmentCapacity;
+
+        Segment(int segmentCapacity) {
+            super(16, 0.75f, true);
+            this.segmentCapacity = segmentCapacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, ExpressionPlan> eldest) {
+            if (size() > segmentCapacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
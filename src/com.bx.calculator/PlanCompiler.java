@@ -0,0 +1,107 @@
+package com.bx.calculator;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+// 第二层编译器：把热点执行计划转换为类型为 (double[])double 的 MethodHandle 树，参数为变量值数组。
+// 常量被绑定进句柄，变量是对参数数组固定下标的读取，运算直接对应静态方法，HotSpot 对反复调用的句柄做定制化后可以整体内联，
+// 每一步的 double 运算都与解释执行相同，且运算没有副作用，因此结果一致（NaN 的符号位可能不同，Java 不规定 NaN 的位模式）
+final class PlanCompiler implements ExpressionPlan.Reducer<MethodHandle> {
+    private static final int MAX_PLAN_SIZE = 512;   // 过长的计划嵌套过深，继续解释执行
+    private static final MethodType UNARY = MethodType.methodType(double.class, double.class);
+    private static final MethodType BINARY = MethodType.methodType(double.class, double.class, double.class);
+    private static final MethodType PLAN = MethodType.methodType(double.class, double[].class);
+    private static final MethodHandle LOAD = MethodHandles.arrayElementGetter(double[].class);
+    private static final MethodHandle ADD;
+    private static final MethodHandle SUB;
+    private static final MethodHandle MUL;
+    private static final MethodHandle DIV;
+    private static final MethodHandle POW;
+    private static final MethodHandle ZERO;
+    private static final MethodHandle SQRT;
+    private static final MethodHandle FACT;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            ADD = lookup.findStatic(PlanCompiler.class, "add", BINARY);
+            SUB = lookup.findStatic(PlanCompiler.class, "sub", BINARY);
+            MUL = lookup.findStatic(PlanCompiler.class, "mul", BINARY);
+            DIV = lookup.findStatic(PlanCompiler.class, "div", BINARY);
+            POW = lookup.findStatic(Math.class, "pow", BINARY);
+            ZERO = lookup.findStatic(PlanCompiler.class, "zero", BINARY);
+            SQRT = lookup.findStatic(Math.class, "sqrt", UNARY);
+            FACT = lookup.findStatic(PlanCompiler.class, "fact", UNARY);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private static final PlanCompiler INSTANCE = new PlanCompiler();
+
+    private PlanCompiler() {
+    }
+
+    // 编译计划，返回类型为 (double[])double 的句柄，参数与 variables() 一一对应；计划过大时返回 null
+    static MethodHandle compile(ExpressionPlan plan) {
+        if (plan.size() > MAX_PLAN_SIZE) {
+            return null;
+        }
+        return plan.reduce(INSTANCE);
+    }
+
+    @Override
+    public MethodHandle constant(double value) {
+        return MethodHandles.dropArguments(MethodHandles.constant(double.class, value), 0, double[].class);
+    }
+
+    @Override
+    public MethodHandle variable(int index) {
+        return MethodHandles.insertArguments(LOAD, 1, index);
+    }
+
+    @Override
+    public MethodHandle unary(byte op, MethodHandle operand) {
+        return MethodHandles.filterReturnValue(operand, op == ExpressionPlan.SQRT ? SQRT : FACT);
+    }
+
+    @Override
+    public MethodHandle binary(byte op, MethodHandle left, MethodHandle right) {
+        MethodHandle operation = switch (op) {
+            case ExpressionPlan.ADD -> ADD;
+            case ExpressionPlan.SUB -> SUB;
+            case ExpressionPlan.MUL -> MUL;
+            case ExpressionPlan.DIV -> DIV;
+            case ExpressionPlan.POW -> POW;
+            default -> ZERO;
+        };
+        // (double, double)double -> (double, double[])double -> (double[], double[])double -> (double[])double
+        MethodHandle both = MethodHandles.collectArguments(MethodHandles.collectArguments(operation, 1, right), 0, left);
+        return MethodHandles.permuteArguments(both, PLAN, 0, 0);
+    }
+
+    private static double add(double num1, double num2) {
+        return num1 + num2;
+    }
+
+    private static double sub(double num1, double num2) {
+        return num1 - num2;
+    }
+
+    private static double mul(double num1, double num2) {
+        return num1 * num2;
+    }
+
+    private static double div(double num1, double num2) {
+        return num1 / num2;
+    }
+
+    private static double zero(double num1, double num2) {
+        return 0;
+    }
+
+    private static double fact(double num) {
+        return Factorials.operator(num);
+    }
+}
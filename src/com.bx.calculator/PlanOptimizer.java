@@ -0,0 +1,227 @@
+package com.bx.calculator;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+// 执行计划的优化：把后缀指令归约为表达式 DAG，构造节点时做常量折叠、恒等式消除和强度削减，
+// 结构相同的子表达式归并为同一个节点，重新生成指令时只计算一次，结果暂存后重复使用。
+// 每个变换都保证结果与未优化的计划逐位相同（包括 -0、NaN 和无穷大），因此只做以下变换：
+//   不含变量的子树在编译时求值，使用与解释执行相同的运算；
+//   x*1、1*x、x/1、x-0、x+(-0)、(-0)+x、x^1 化为 x，x^0 化为 1（Math.pow 对任何 x 都返回 1，包括 NaN）；
+//   x^2 化为 x*x（Math.pow 对指数 2 的结果与 x*x 相同）；
+//   除以 2 的整数次幂化为乘以它的倒数（倒数可以精确表示，两者都是同一实数值的正确舍入）。
+// x+0 不能化简（-0 + 0 = +0）；x^3 等更高次幂化为连乘会多一次舍入，x^0.5 化为开方在 -0 和 -∞ 处结果不同，因此都保留原样
+final class PlanOptimizer implements ExpressionPlan.Reducer<PlanOptimizer.Node> {
+    private final Map<Node, Node> nodes = new HashMap<>(); // 已创建的节点，结构相同的子表达式共用一个节点
+
+    private PlanOptimizer() {
+    }
+
+    // 优化计划，返回的计划与原计划引用的变量相同（即使某些变量被消去），求值时的参数顺序不变
+    static ExpressionPlan optimize(ExpressionPlan plan) {
+        PlanOptimizer optimizer = new PlanOptimizer();
+        Node root = plan.reduce(optimizer);
+        countUses(root);
+        ExpressionPlan.Builder builder = new ExpressionPlan.Builder(plan.size());
+        for (String name : plan.variables()) {
+            builder.declare(name);
+        }
+        emit(root, builder);
+        return builder.build();
+    }
+
+    @Override
+    public Node constant(double value) {
+        return intern(new Node(ExpressionPlan.PUSH, value, 0, null, null));
+    }
+
+    @Override
+    public Node variable(int index) {
+        return intern(new Node(ExpressionPlan.LOAD, 0, index, null, null));
+    }
+
+    @Override
+    public Node unary(byte op, Node operand) {
+        if (operand.isConstant()) {
+            return constant(ExpressionPlan.unary(op, operand.value));
+        }
+        return intern(new Node(op, 0, 0, operand, null));
+    }
+
+    @Override
+    public Node binary(byte op, Node left, Node right) {
+        if (op == ExpressionPlan.ZERO) {
+            return constant(0);
+        }
+        if (left.isConstant() && right.isConstant()) {
+            return constant(ExpressionPlan.binary(op, left.value, right.value));
+        }
+        switch (op) {
+            case ExpressionPlan.ADD -> {
+                if (right.is(-0.0)) {
+                    return left;
+                }
+                if (left.is(-0.0)) {
+                    return right;
+                }
+            }
+            case ExpressionPlan.SUB -> {
+                if (right.is(0.0)) {
+                    return left;
+                }
+            }
+            case ExpressionPlan.MUL -> {
+                if (right.is(1.0)) {
+                    return left;
+                }
+                if (left.is(1.0)) {
+                    return right;
+                }
+            }
+            case ExpressionPlan.DIV -> {
+                if (right.is(1.0)) {
+                    return left;
+                }
+                if (right.isConstant() && isPowerOfTwo(right.value)) {
+                    return binary(ExpressionPlan.MUL, left, constant(1 / right.value));
+                }
+            }
+            case ExpressionPlan.POW -> {
+                if (right.is(0.0) || right.is(-0.0)) {
+                    return constant(1);
+                }
+                if (right.is(1.0)) {
+                    return left;
+                }
+                if (right.is(2.0)) {
+                    return binary(ExpressionPlan.MUL, left, left);
+                }
+            }
+            default -> {
+            }
+        }
+        return intern(new Node(op, 0, 0, left, right));
+    }
+
+    // ±2^k 且为正规数：倒数 2^-k 可以精确表示（k = 1023 时为次正规数，仍然精确）
+    private static boolean isPowerOfTwo(double value) {
+        int exponent = Math.getExponent(value);
+        return exponent >= Double.MIN_EXPONENT && exponent <= Double.MAX_EXPONENT
+                && Math.abs(value) == Math.scalb(1.0, exponent);
+    }
+
+    private Node intern(Node node) {
+        Node existing = nodes.putIfAbsent(node, node);
+        return existing != null ? existing : node;
+    }
+
+    // 统计每个节点被父节点引用的次数，每个节点只展开一次
+    private static void countUses(Node root) {
+        Deque<Node> stack = new ArrayDeque<>();
+        root.uses = 1;
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.pop();
+            for (Node child : node.children()) {
+                if (child.uses++ == 0) {
+                    stack.push(child);
+                }
+            }
+        }
+    }
+
+    // 按后缀顺序生成指令，左子树先于右子树，与原计划的求值顺序相同。
+    // 被引用多次的运算节点第一次计算后暂存，之后直接取暂存的值；常量和变量直接重新压入。
+    // 使用显式栈，嵌套很深的表达式也不会栈溢出
+    private static void emit(Node root, ExpressionPlan.Builder builder) {
+        Deque<Node> stack = new ArrayDeque<>();
+        stack.push(root);
+        while (!stack.isEmpty()) {
+            Node node = stack.peek();
+            if (node.op == ExpressionPlan.PUSH) {
+                builder.push(node.value);
+            } else if (node.op == ExpressionPlan.LOAD) {
+                builder.load(node.index);
+            } else if (node.slot >= 0) {
+                builder.restore(node.slot);
+            } else if (!node.expanded) {
+                node.expanded = true;
+                if (node.right != null) {
+                    stack.push(node.right);
+                }
+                stack.push(node.left);
+                continue;
+            } else {
+                if (node.right == null) {
+                    builder.unary(node.op);
+                } else {
+                    builder.binary(node.op);
+                }
+                if (node.uses > 1) {
+                    node.slot = builder.save();
+                }
+            }
+            stack.pop();
+        }
+    }
+
+    // DAG 的节点。子节点都已归并，因此比较结构时子节点按引用比较
+    static final class Node {
+        private static final Node[] NO_CHILDREN = new Node[0];
+
+        final byte op;
+        final double value; // PUSH 的常量
+        final int index;    // LOAD 的变量下标
+        final Node left;
+        final Node right;   // 一元运算为 null
+        private final int hash;
+        int uses;   // 被父节点引用的次数
+        int slot = -1;  // 暂存位置，-1 表示尚未暂存
+        boolean expanded;   // 生成指令时子节点是否已经入栈
+
+        Node(byte op, double value, int index, Node left, Node right) {
+            this.op = op;
+            this.value = value;
+            this.index = index;
+            this.left = left;
+            this.right = right;
+            this.hash = ((op * 31 + Double.hashCode(value)) * 31 + index) * 31
+                    + System.identityHashCode(left) * 17 + System.identityHashCode(right);
+        }
+
+        boolean isConstant() {
+            return op == ExpressionPlan.PUSH;
+        }
+
+        // 是否为指定的常量，按位比较以区分 0 和 -0
+        boolean is(double constant) {
+            return op == ExpressionPlan.PUSH && Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(constant);
+        }
+
+        Node[] children() {
+            if (left == null) {
+                return NO_CHILDREN;
+            }
+            return right == null ? new Node[]{left} : new Node[]{left, right};
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Node other)) {
+                return false;
+            }
+            return op == other.op && Double.doubleToRawLongBits(value) == Double.doubleToRawLongBits(other.value)
+                    && index == other.index && left == other.left && right == other.right;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,360 @@
+package com.bx.calculator;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+// 任意长度、任意进制（2~36）的数值转换，支持负号和小数部分，数字之间的空白和下划线被忽略。
+// 长数字使用分治算法：解析时把数字串拆成两段，高位段乘以 base^低位段长度 后与低位段相加；输出时反复除以 base^(d·2^k)，
+// 商和余数分别递归输出。乘除由 BigInteger 的 Karatsuba/Toom-Cook 和 Burnikel-Ziegler 算法完成，总耗时低于逐位转换的平方级。
+// 流式接口按块读取输入、递归地把结果直接写入 Writer，不构造完整的数字字符串。
+// 小数部分按与输入相当的精度截断：输入有 k 位 base 进制小数时，除前导 0 外输出 ceil(k·log(base)/log(toBase)) + 1 位
+public final class RadixConverter {
+    private static final int CHUNK_LEAVES = 1024;   // 流式读取时每块包含的叶子数（每个叶子是一个 long 能容纳的位数）
+
+    private RadixConverter() {
+    }
+
+    // 转换数字，输入无效时抛出 NumberFormatException
+    public static String convert(String number, int fromBase, int toBase) {
+        checkBase(fromBase);
+        checkBase(toBase);
+        String digits = compact(number);
+        boolean negative = digits.startsWith("-");
+        int start = negative || digits.startsWith("+") ? 1 : 0;
+        int point = digits.indexOf('.', start);
+        int integerEnd = point < 0 ? digits.length() : point;
+        if (integerEnd == start && (point < 0 || point == digits.length() - 1)) {
+            throw new NumberFormatException("输入为空: " + number);
+        }
+
+        // 常见的小数值直接用 long 转换
+        if (point < 0 && integerEnd - start <= Digits.of(fromBase).leafDigits) {
+            long value = parseLeaf(digits, start, integerEnd, fromBase);
+            return (negative && value != 0 ? "-" : "") + Long.toString(value, toBase);
+        }
+
+        Digits from = Digits.of(fromBase);
+        Digits to = Digits.of(toBase);
+        BigInteger integer = integerEnd == start ? BigInteger.ZERO : from.parse(digits, start, integerEnd);
+        BigInteger fraction = BigInteger.ZERO;
+        int fractionDigits = 0;
+        if (point >= 0) {
+            fractionDigits = digits.length() - point - 1;
+            if (digits.indexOf('.', point + 1) >= 0) {
+                throw new NumberFormatException("多个小数点: " + number);
+            }
+            if (fractionDigits > 0) {
+                fraction = from.parse(digits, point + 1, digits.length());
+            }
+        }
+        StringBuilder out = new StringBuilder();
+        try {
+            write(integer, fraction, fractionDigits, negative, from, to, out);
+        } catch (IOException e) {
+            throw new IllegalStateException(e); // StringBuilder 不会抛出 IOException
+        }
+        return out.toString();
+    }
+
+    // 输入以 0x、0o、0b 开头（可带负号）时按十六、八、二进制解析，否则按 defaultBase 解析
+    public static String convertWithPrefix(String number, int defaultBase, int toBase) {
+        String digits = compact(number);
+        int sign = digits.startsWith("-") || digits.startsWith("+") ? 1 : 0;
+        if (digits.length() > sign + 2 && digits.charAt(sign) == '0') {
+            int base = switch (Character.toLowerCase(digits.charAt(sign + 1))) {
+                case 'x' -> 16;
+                case 'o' -> 8;
+                case 'b' -> 2;
+                default -> 0;
+            };
+            if (base != 0) {
+                return convert(digits.substring(0, sign) + digits.substring(sign + 2), base, toBase);
+            }
+        }
+        return convert(digits, defaultBase, toBase);
+    }
+
+    // 流式转换：从 in 读取一个数字直到结束，把转换结果写入 out，适合数百万位的数字
+    public static void convert(Reader in, int fromBase, Writer out, int toBase) throws IOException {
+        checkBase(fromBase);
+        checkBase(toBase);
+        Digits from = Digits.of(fromBase);
+        ChunkParser integer = new ChunkParser(from);
+        ChunkParser fraction = null;
+        boolean negative = false;
+        boolean first = true;
+        char[] buffer = new char[8192];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            for (int i = 0; i < n; i++) {
+                char ch = buffer[i];
+                if (isIgnorable(ch)) {
+                    continue;
+                }
+                if (first && (ch == '-' || ch == '+')) {
+                    negative = ch == '-';
+                } else if (ch == '.') {
+                    if (fraction != null) {
+                        throw new NumberFormatException("多个小数点");
+                    }
+                    fraction = new ChunkParser(from);
+                } else {
+                    (fraction == null ? integer : fraction).accept(ch);
+                }
+                first = false;
+            }
+        }
+        if (integer.digits() == 0 && (fraction == null || fraction.digits() == 0)) {
+            throw new NumberFormatException("输入为空");
+        }
+        BigInteger integerValue = integer.finish();
+        int fractionDigits = fraction == null ? 0 : fraction.digits();
+        BigInteger fractionValue = fraction == null ? BigInteger.ZERO : fraction.finish();
+        write(integerValue, fractionValue, fractionDigits, negative, from, Digits.of(toBase), out);
+        out.flush();
+    }
+
+    // 写出 ±integer.fraction，fraction 为 fractionDigits 位 from 进制小数的数值
+    private static void write(BigInteger integer, BigInteger fraction, int fractionDigits, boolean negative,
+                              Digits from, Digits to, Appendable out) throws IOException {
+        BigInteger fractionOut = BigInteger.ZERO;
+        int outDigits = 0;
+        if (fraction.signum() != 0) {
+            // fraction / from^k ≈ fractionOut / to^n，向下截断；小数点后的前导 0 不计入精度
+            double log2Value = fraction.bitLength() - 1 - fractionDigits * Math.log(from.base) / Math.log(2);
+            int leadingZeros = (int) Math.max(0, Math.floor(-log2Value * Math.log(2) / Math.log(to.base)));
+            outDigits = (int) Math.ceil(fractionDigits * Math.log(from.base) / Math.log(to.base)) + 1 + leadingZeros;
+            fractionOut = fraction.multiply(to.power(outDigits)).divide(from.power(fractionDigits));
+            while (outDigits > 0 && fractionOut.mod(to.radix).signum() == 0) {  // 去掉末尾的 0
+                fractionOut = fractionOut.divide(to.radix);
+                outDigits--;
+            }
+        }
+        if (negative && (integer.signum() != 0 || outDigits > 0)) {
+            out.append('-');
+        }
+        if (integer.signum() == 0) {
+            out.append('0');
+        } else {
+            to.write(integer, 0, out);
+        }
+        if (outDigits > 0) {
+            out.append('.');
+            to.write(fractionOut, outDigits, out);
+        }
+    }
+
+    private static String compact(String number) {
+        StringBuilder sb = null;
+        for (int i = 0; i < number.length(); i++) {
+            if (isIgnorable(number.charAt(i))) {
+                if (sb == null) {
+                    sb = new StringBuilder(number.length());
+                    sb.append(number, 0, i);
+                }
+            } else if (sb != null) {
+                sb.append(number.charAt(i));
+            }
+        }
+        return sb == null ? number : sb.toString();
+    }
+
+    private static boolean isIgnorable(char ch) {
+        return ch == '_' || Character.isWhitespace(ch);
+    }
+
+    private static void checkBase(int base) {
+        if (base < Character.MIN_RADIX || base > Character.MAX_RADIX) {
+            throw new NumberFormatException("进制必须在 2 到 36 之间: " + base);
+        }
+    }
+
+    // 不超过一个 long 的数字段逐位解析
+    private static long parseLeaf(CharSequence s, int start, int end, int base) {
+        long value = 0;
+        for (int i = start; i < end; i++) {
+            int digit = Character.digit(s.charAt(i), base);
+            if (digit < 0) {
+                throw new NumberFormatException("无效的" + base + "进制数字: " + s.charAt(i));
+            }
+            value = value * base + digit;
+        }
+        return value;
+    }
+
+    // 某个进制的分治参数：叶子位数 d（base^d 不超过 long），以及按需计算的 base^(d·2^k)。
+    // 每次转换使用新的实例，较大的幂只在本次转换中缓存，转换结束后随之回收；最低的 SHARED_LEVELS 级在所有转换之间共享
+    private static final class Digits {
+        private static final int SHARED_LEVELS = 10;    // 共享的级数，最高一级约 4KB，每个进制共约 8KB
+        private static final BigInteger[][] SHARED = new BigInteger[Character.MAX_RADIX + 1][];
+
+        private final int base;
+        private final BigInteger radix;
+        private final int leafDigits;
+        private final long leafValue;   // base^leafDigits
+        private final List<BigInteger> powers = new ArrayList<>();  // powers[k] = base^(leafDigits·2^k)
+
+        private Digits(int base) {
+            this.base = base;
+            this.radix = BigInteger.valueOf(base);
+            int digits = 0;
+            long value = 1;
+            while (value <= Long.MAX_VALUE / base) {
+                value *= base;
+                digits++;
+            }
+            this.leafDigits = digits;
+            this.leafValue = value;
+        }
+
+        static Digits of(int base) {
+            return new Digits(base);
+        }
+
+        // base^(leafDigits·2^k)，依次平方得到并缓存
+        BigInteger doubling(int k) {
+            while (powers.size() <= k) {
+                int level = powers.size();
+                if (level < SHARED_LEVELS) {
+                    powers.add(shared(level));
+                } else {
+                    BigInteger last = powers.get(level - 1);
+                    powers.add(last.multiply(last));
+                }
+            }
+            return powers.get(k);
+        }
+
+        private BigInteger shared(int level) {
+            synchronized (SHARED) {
+                BigInteger[] levels = SHARED[base];
+                if (levels == null) {
+                    levels = SHARED[base] = new BigInteger[SHARED_LEVELS];
+                    levels[0] = BigInteger.valueOf(leafValue);
+                }
+                for (int i = 1; i <= level; i++) {
+                    if (levels[i] == null) {
+                        levels[i] = levels[i - 1].multiply(levels[i - 1]);
+                    }
+                }
+                return levels[level];
+            }
+        }
+
+        BigInteger power(int digits) {
+            return radix.pow(digits);
+        }
+
+        // 分治解析 [start, end)：低位段取不超过总长度的最大 leafDigits·2^k 位
+        BigInteger parse(CharSequence s, int start, int end) {
+            int length = end - start;
+            if (length <= leafDigits) {
+                return BigInteger.valueOf(parseLeaf(s, start, end, base));
+            }
+            int k = 31 - Integer.numberOfLeadingZeros((length - 1) / leafDigits);
+            int lowLength = leafDigits << k;
+            BigInteger high = parse(s, start, end - lowLength);
+            BigInteger low = parse(s, end - lowLength, end);
+            return high.multiply(doubling(k)).add(low);
+        }
+
+        // 分治输出非负数 value，不足 minDigits 位时在前面补 0
+        void write(BigInteger value, int minDigits, Appendable out) throws IOException {
+            if (value.bitLength() <= 63) {  // 能放进 long，包括小于 base^leafDigits 的所有余数
+                String text = Long.toString(value.longValue(), base);
+                for (int i = text.length(); i < minDigits; i++) {
+                    out.append('0');
+                }
+                out.append(text);
+                return;
+            }
+            // 取 base^(leafDigits·2^k) 约为 value 的平方根，商和余数的规模各约一半
+            double leafBits = leafDigits * Math.log(base) / Math.log(2);
+            int k = Math.max(0, 31 - Integer.numberOfLeadingZeros((int) (value.bitLength() / (2 * leafBits))));
+            int lowDigits = leafDigits << k;
+            BigInteger[] parts = value.divideAndRemainder(doubling(k));
+            if (parts[0].signum() == 0) {
+                for (int i = lowDigits; i < minDigits; i++) {
+                    out.append('0');
+                }
+            } else {
+                write(parts[0], minDigits - lowDigits, out);
+            }
+            write(parts[1], lowDigits, out);
+        }
+    }
+
+    // 按块累积的流式解析：每块 leafDigits·CHUNK_LEAVES 位，等长的相邻块像二进制计数器一样两两合并，
+    // 合并的代价与分治解析相同
+    private static final class ChunkParser {
+        private final Digits digits;
+        private final char[] chunk;
+        private final int chunkLevel;   // 一整块的位数为 leafDigits·2^chunkLevel
+        private final Deque<BigInteger> values = new ArrayDeque<>();
+        private final Deque<Integer> lengths = new ArrayDeque<>();
+        private int chunkLength;
+        private int total;
+
+        ChunkParser(Digits digits) {
+            this.digits = digits;
+            this.chunkLevel = Integer.numberOfTrailingZeros(CHUNK_LEAVES);
+            this.chunk = new char[digits.leafDigits * CHUNK_LEAVES];
+        }
+
+        void accept(char ch) {
+            chunk[chunkLength++] = ch;
+            total++;
+            if (chunkLength == chunk.length) {
+                push(digits.parse(CharBuffer.wrap(chunk, 0, chunkLength), 0, chunkLength), chunkLength);
+                chunkLength = 0;
+                // 栈顶两块等长时合并为更高一级
+                while (lengths.size() >= 2 && lengths.peek().equals(second(lengths))) {
+                    int length = lengths.pop();
+                    BigInteger low = values.pop();
+                    int level = chunkLevel + Integer.numberOfTrailingZeros(length / chunk.length);
+                    BigInteger high = values.pop();
+                    lengths.pop();
+                    push(high.multiply(digits.doubling(level)).add(low), length * 2);
+                }
+            }
+        }
+
+        int digits() {
+            return total;
+        }
+
+        // 合并剩余的块，返回全部数字的数值
+        BigInteger finish() {
+            if (chunkLength > 0) {
+                push(digits.parse(CharBuffer.wrap(chunk, 0, chunkLength), 0, chunkLength), chunkLength);
+                chunkLength = 0;
+            }
+            BigInteger value = BigInteger.ZERO;
+            int lowDigits = 0;
+            while (!values.isEmpty()) {
+                BigInteger high = values.pop();
+                value = high.multiply(digits.power(lowDigits)).add(value);
+                lowDigits += lengths.pop();
+            }
+            return value;
+        }
+
+        private void push(BigInteger value, int length) {
+            values.push(value);
+            lengths.push(length);
+        }
+
+        private static Integer second(Deque<Integer> deque) {
+            var iterator = deque.iterator();
+            iterator.next();
+            return iterator.next();
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package com.bx.calculator;
+
+import java.math.MathContext;
+
+// 用户会话：保存当前登录的用户和工作表中的变量，每个窗口或连接各持有一个，会话之间互不影响
+public class Session {
+    private final Worksheet worksheet = new Worksheet(); // 本会话定义的变量
+    private volatile User user; // 当前用户，未登录时为 null
+    private volatile MathContext mathContext = Model.mathContext(Integer.getInteger("calc.precision", 0)); // 为 null 时使用 double 计算
+
+    public User getUser() {
+        return user;
+    }
+
+    void setUser(User user) {
+        this.user = user;
+    }
+
+    // 判断是否已登录
+    public boolean isLoggedIn() {
+        return user != null;
+    }
+
+    // 计算精度，null 表示 double 模式
+    public MathContext getMathContext() {
+        return mathContext;
+    }
+
+    public void setMathContext(MathContext mathContext) {
+        this.mathContext = mathContext;
+    }
+
+    public Worksheet getWorksheet() {
+        return worksheet;
+    }
+
+    // 当前用户名，未登录时为 null
+    public String getUsername() {
+        User current = user;
+        return current == null ? null : current.getUsername();
+    }
+}
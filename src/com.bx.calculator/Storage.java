@@ -0,0 +1,44 @@
+package com.bx.calculator;
+
+import java.util.List;
+
+// 用户和运算记录的存储后端，失败时抛出 StorageException
+public interface Storage extends AutoCloseable {
+    // 检查并创建所需的表或文件
+    void initialize();
+
+    // 按用户名查找用户，不存在时返回 null
+    User findUser(String username);
+
+    // 写入一个新用户，用户名已存在时不写入并返回 false
+    boolean insertUser(User user);
+
+    // 修改用户密码
+    void updatePassword(String username, String password);
+
+    // 删除用户，返回是否有用户被删除
+    boolean deleteUser(String username);
+
+    // 批量写入运算记录
+    void saveCalculations(List<HistoryRecord> records);
+
+    // 按时间从新到旧分页加载某个用户的运算记录：after 为上一页的最后一条记录（第一页传 null），
+    // 按 (时间, 编号) 定位下一页，翻页代价与已翻过的页数无关
+    List<HistoryRecord> loadCalculations(String username, HistoryRecord after, int limit);
+
+    // 按时间从旧到新分页加载某个用户的运算记录，用于导出；after 的含义与 loadCalculations 相同
+    List<HistoryRecord> loadCalculationsAscending(String username, HistoryRecord after, int limit);
+
+    // 删除某个用户的全部运算记录，不影响使用统计
+    void deleteCalculations(String username);
+
+    // 使用概览：运算次数最多的 limit 个用户和表达式，以及最近 days 天每天的运算次数。
+    // 统计在写入运算记录时增量更新，删除用户时移除该用户的统计
+    UsageSummary loadUsageSummary(int limit, int days);
+
+    // 按用户名分页列出全部用户及其运算次数：after 为上一页的最后一个用户名（第一页传 null）
+    List<UserUsage> loadUserUsage(String after, int limit);
+
+    @Override
+    void close();
+}
@@ -0,0 +1,24 @@
+package com.bx.calculator;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+// 一次存储后端调用的 JFR 事件，记录调用的方法、用户和涉及的记录数
+@Name("com.bx.calculator.Storage")
+@Label("Storage Call")
+@Category("Calculator")
+class StorageEvent extends Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Username")
+    String username;
+
+    @Label("Rows")
+    int rows;
+
+    @Label("Success")
+    boolean success;
+}
@@ -0,0 +1,10 @@
+package com.bx.calculator;
+
+// 存储后端读写失败时抛出，包装底层的 SQLException 或 IOException
+public class StorageException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    public StorageException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,31 @@
+package com.bx.calculator;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+
+// 管理员面板的使用概览，全部来自增量维护的统计表，读取代价与运算记录的数量无关
+public class UsageSummary {
+    private final List<UserUsage> topUsers; // 运算次数最多的用户，按次数从多到少
+    private final Map<String, Long> topExpressions;   // 最常用的表达式及次数，按次数从多到少
+    private final SortedMap<LocalDate, Long> daily;   // 每天的运算次数，没有运算的日期不出现
+
+    public UsageSummary(List<UserUsage> topUsers, Map<String, Long> topExpressions, SortedMap<LocalDate, Long> daily) {
+        this.topUsers = topUsers;
+        this.topExpressions = topExpressions;
+        this.daily = daily;
+    }
+
+    public List<UserUsage> getTopUsers() {
+        return topUsers;
+    }
+
+    public Map<String, Long> getTopExpressions() {
+        return topExpressions;
+    }
+
+    public SortedMap<LocalDate, Long> getDaily() {
+        return daily;
+    }
+}
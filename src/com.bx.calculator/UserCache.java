@@ -0,0 +1,122 @@
+package com.bx.calculator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+// 按用户名缓存的用户信息：容量有限（LRU 淘汰），条目在 TTL 到期后重新查询，线程安全。
+// 不存在的用户也会被缓存，注册、删除和修改密码时需要显式失效。
+// 按用户名的哈希分段加锁，不同会话查询不同用户时互不阻塞
+public class UserCache {
+    private static final User ABSENT = new User("", "");    // 表示用户不存在的占位值
+    private static final int MAX_SEGMENTS = 16;
+
+    private final long ttlNanos;
+    private final Segment[] segments;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    public UserCache(int capacity, long ttl, TimeUnit unit) {
+        this.ttlNanos = unit.toNanos(ttl);
+        int segmentCount = Integer.highestOneBit(Math.max(1, Math.min(MAX_SEGMENTS, capacity)));
+        int segmentCapacity = (capacity + segmentCount - 1) / segmentCount;
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(segmentCapacity);
+        }
+    }
+
+    // 查找用户，缓存未命中或已过期时调用 loader 查询，loader 返回 null 表示用户不存在
+    public User get(String username, Function<String, User> loader) {
+        Segment segment = segmentFor(username);
+        long now = System.nanoTime();
+        long loadGeneration;
+        synchronized (segment) {
+            CachedUser entry = segment.get(username);
+            if (entry != null && now - entry.expiresAt < 0) {
+                hits.increment();
+                return entry.user == ABSENT ? null : entry.user;
+            }
+            loadGeneration = segment.generation;
+        }
+        misses.increment();
+        User user = loader.apply(username);    // 在锁外查询，避免慢查询阻塞其他用户
+        synchronized (segment) {
+            if (segment.generation == loadGeneration) {
+                segment.put(username, new CachedUser(user == null ? ABSENT : user, System.nanoTime() + ttlNanos));
+            }
+        }
+        return user;
+    }
+
+    // 使某个用户的缓存失效
+    public void invalidate(String username) {
+        Segment segment = segmentFor(username);
+        synchronized (segment) {
+            segment.remove(username);
+            segment.generation++;
+        }
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+                segment.generation++;
+            }
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    private Segment segmentFor(String username) {
+        int h = username.hashCode();
+        return segments[(h ^ (h >>> 16)) & (segments.length - 1)];
+    }
+
+    // 一个缓存段，按访问顺序做 LRU 淘汰
+    private static final class Segment extends LinkedHashMap<String, CachedUser> {
+        private static final long serialVersionUID = 1L;
+
+        private final int segmentCapacity;
+        private long generation; // 每次失效加一，查询期间发生过失效则不缓存查询结果
+
+        Segment(int segmentCapacity) {
+            super(16, 0.75f, true);
+            this.segmentCapacity = segmentCapacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+            return size() > segmentCapacity;
+        }
+    }
+
+    private static final class CachedUser {
+        private final User user;
+        private final long expiresAt;   // System.nanoTime() 时间点
+
+        private CachedUser(User user, long expiresAt) {
+            this.user = user;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
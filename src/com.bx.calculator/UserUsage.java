@@ -0,0 +1,28 @@
+package com.bx.calculator;
+
+import java.sql.Timestamp;
+
+// 一个用户的使用统计，对应 user_usage 表中的一行
+public class UserUsage {
+    private final String username;
+    private final long calculations;    // 累计运算次数，清除历史记录不会减少
+    private final Timestamp lastCalculation;    // 最近一次运算的时间，从未运算时为 null
+
+    public UserUsage(String username, long calculations, Timestamp lastCalculation) {
+        this.username = username;
+        this.calculations = calculations;
+        this.lastCalculation = lastCalculation;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    public long getCalculations() {
+        return calculations;
+    }
+
+    public Timestamp getLastCalculation() {
+        return lastCalculation;
+    }
+}
@@ -0,0 +1,16 @@
+package com.bx.calculator;
+
+// 管理员面板的用户列表，按用户名分页加载
+public class UserUsageListModel extends PagedListModel<UserUsage> {
+    private static final long serialVersionUID = 1L;
+
+    public UserUsageListModel(PageLoader<UserUsage> loader) {
+        super(loader);
+    }
+
+    @Override
+    protected String format(UserUsage usage) {
+        String last = usage.getLastCalculation() == null ? "-" : usage.getLastCalculation().toLocalDateTime().format(HistoryListModel.FORMATTER);
+        return usage.getUsername() + "    " + usage.getCalculations() + " 次    最近 " + last;
+    }
+}
@@ -0,0 +1,66 @@
+package com.bx.calculator;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+// ColumnEvaluator 的 Vector API 实现，只在运行时带 --add-modules jdk.incubator.vector 时由反射加载。
+// 加减乘除和开方按 IEEE 754 正确舍入，与标量运算逐位相同；乘方、阶乘等交给标量循环，
+// 向量化的乘方允许 1 ulp 的误差，与 Math.pow 的结果不一定相同
+final class VectorKernels implements ColumnEvaluator.Kernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public void unary(byte op, double[] a, int aOffset, double[] out, int length) {
+        if (op != ExpressionPlan.SQRT) {
+            ColumnEvaluator.SCALAR.unary(op, a, aOffset, out, length);
+            return;
+        }
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            DoubleVector.fromArray(SPECIES, a, aOffset + i).lanewise(VectorOperators.SQRT).intoArray(out, i);
+        }
+        for (; i < length; i++) {
+            out[i] = Math.sqrt(a[aOffset + i]);
+        }
+    }
+
+    // 每种运算一个循环，运算符是常量时 C2 才能把 lanewise 编译为向量指令
+    @Override
+    public void binary(byte op, double[] a, int aOffset, double[] b, int bOffset, double[] out, int length) {
+        int bound = SPECIES.loopBound(length);
+        int i = 0;
+        switch (op) {
+            case ExpressionPlan.ADD -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(a, aOffset + i).add(load(b, bOffset + i)).intoArray(out, i);
+                }
+            }
+            case ExpressionPlan.SUB -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(a, aOffset + i).sub(load(b, bOffset + i)).intoArray(out, i);
+                }
+            }
+            case ExpressionPlan.MUL -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(a, aOffset + i).mul(load(b, bOffset + i)).intoArray(out, i);
+                }
+            }
+            case ExpressionPlan.DIV -> {
+                for (; i < bound; i += SPECIES.length()) {
+                    load(a, aOffset + i).div(load(b, bOffset + i)).intoArray(out, i);
+                }
+            }
+            default -> {
+            }
+        }
+        // 剩余不足一个向量的元素，以及没有向量实现的运算
+        for (; i < length; i++) {
+            out[i] = ExpressionPlan.binary(op, a[aOffset + i], b[bOffset + i]);
+        }
+    }
+
+    private static DoubleVector load(double[] array, int offset) {
+        return DoubleVector.fromArray(SPECIES, array, offset);
+    }
+}
@@ -1,14 +1,21 @@
 package com.bx.calculator;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import java.awt.*;
-import java.util.List;
 
 public class View extends JFrame {
     private final JTextField inputField;    // 输入文本框
     private final JLabel resultLabel;   // 结果标签
+    private final JLabel previewLabel;  // 实时预览标签
+    private final transient Controller controller;    // 处理本窗口事件的控制器
+    private final transient java.util.List<JButton> storageButtons = new java.util.ArrayList<>();   // 需要存储后端的按钮
+    private static final String[] PRECISION_LABELS = {"double", "16 位", "34 位", "50 位", "100 位"};
+    private static final int[] PRECISION_DIGITS = {0, 16, 34, 50, 100};
 
-    public View() {
+    public View(Controller controller) {
+        this.controller = controller;
         setTitle("计算器Pro");  // 设置标题
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLayout(new BorderLayout());
@@ -17,6 +24,23 @@ public class View extends JFrame {
 
         inputField = new JTextField();
         resultLabel = new JLabel();
+        previewLabel = new JLabel(" ");
+        previewLabel.setForeground(Color.GRAY);
+        inputField.getDocument().addDocumentListener(new DocumentListener() {  // 每次输入都通知控制器，由控制器防抖
+            @Override
+            public void insertUpdate(DocumentEvent e) {
+                controller.inputChanged(inputField.getText());
+            }
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                controller.inputChanged(inputField.getText());
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+            }
+        });
 
         JPanel buttonPanel = new JPanel(new GridLayout(6, 4));  // 按钮面板，使用网格布局
         String[] buttonLabels = {
@@ -34,12 +58,32 @@ public class View extends JFrame {
             button.addActionListener(e -> {
                 String command = e.getActionCommand();  // 获取按钮的命令
                 String inputText = inputField.getText();    // 获取输入文本
-                Controller.handleButtonAction(command, inputText, View.this);   // 调用控制器的处理按钮点击事件的方法
+                controller.handleButtonAction(command, inputText);   // 调用控制器的处理按钮点击事件的方法
             });
+            if (label.equals("用户") || label.equals("历史记录")) {
+                storageButtons.add(button);
+            }
             buttonPanel.add(button);
         }
 
-        add(inputField, BorderLayout.NORTH);
+        JComboBox<String> precisionBox = new JComboBox<>(PRECISION_LABELS);  // 计算精度
+        for (int i = 0; i < PRECISION_DIGITS.length; i++) {
+            if (PRECISION_DIGITS[i] == controller.getPrecision()) {
+                precisionBox.setSelectedIndex(i);
+            }
+        }
+        precisionBox.addActionListener(e -> controller.setPrecision(PRECISION_DIGITS[precisionBox.getSelectedIndex()]));
+        JCheckBox previewBox = new JCheckBox("实时", controller.isLivePreview());   // 输入时实时预览结果
+        previewBox.addActionListener(e -> controller.setLivePreview(previewBox.isSelected()));
+        JPanel optionPanel = new JPanel(new BorderLayout());
+        optionPanel.add(previewBox, BorderLayout.WEST);
+        optionPanel.add(precisionBox, BorderLayout.EAST);
+        JPanel inputPanel = new JPanel(new BorderLayout());
+        inputPanel.add(inputField, BorderLayout.CENTER);
+        inputPanel.add(optionPanel, BorderLayout.EAST);
+        inputPanel.add(previewLabel, BorderLayout.SOUTH);
+
+        add(inputPanel, BorderLayout.NORTH);
         add(resultLabel, BorderLayout.CENTER);
         add(buttonPanel, BorderLayout.SOUTH);
     }
@@ -54,10 +98,23 @@ public class View extends JFrame {
         resultLabel.setText(result);
     }
 
+    // 存储后端未就绪时禁用用户和历史记录按钮
+    public void setStorageReady(boolean ready) {
+        for (JButton button : storageButtons) {
+            button.setEnabled(ready);
+            button.setToolTipText(ready ? null : "正在连接数据库…");
+        }
+    }
+
+    // 设置实时预览的文本，为空时保留标签的高度
+    public void displayPreview(String preview) {
+        previewLabel.setText(preview.isEmpty() ? " " : preview);
+    }
+
     // 显示用户选项
     public void displayUserOptions() {
-        if (Controller.isLoggedIn()) {  // 如果已登录
-            if (Controller.isRoot()) {
+        if (controller.isLoggedIn()) {  // 如果已登录
+            if (controller.isRoot()) {
                 displayRootOptionsMenu();
             } else {
                 displayUserOptionsMenu();
@@ -85,7 +142,7 @@ public class View extends JFrame {
         if (option == JOptionPane.OK_OPTION) {
             String username = usernameField.getText();
             String password = new String(passwordField.getPassword());
-            Controller.login(username, password);
+            controller.login(username, password);
         }
     }
 
@@ -102,7 +159,7 @@ public class View extends JFrame {
         if (option == JOptionPane.OK_OPTION) {
             String username = usernameField.getText();
             String password = new String(passwordField.getPassword());
-            Controller.register(username, password);
+            controller.register(username, password);
         }
     }
 
@@ -115,7 +172,7 @@ public class View extends JFrame {
             case 0 -> displayChangePasswordDialog();
             case 1 -> displayCancelDialog();
             case 2 -> {
-                Controller.logout();
+                controller.logout();
                 setTitle("计算器Pro");
             }
         }
@@ -132,15 +189,52 @@ public class View extends JFrame {
             case 1 -> displayChangePasswordDialog();
             case 2 -> displayCancelDialog();
             case 3 -> {
-                Controller.logout();
+                controller.logout();
                 setTitle("计算器Pro");
             }
         }
     }
 
     private void displayAllUser() {
-        //未完成
-        JOptionPane.showMessageDialog(this, "待完成！", "全部用户", JOptionPane.INFORMATION_MESSAGE);
+        controller.showUsageDashboard();
+    }
+
+    // 显示管理员面板：使用概览和全部用户列表，用户列表滚动到接近末尾时加载下一页
+    public void displayUsageDashboard(UsageSummary summary, UserUsageListModel users) {
+        JTextArea overview = new JTextArea(formatUsageSummary(summary));
+        overview.setEditable(false);
+        overview.setFont(new Font(Font.MONOSPACED, Font.PLAIN, 12));
+
+        JList<String> userList = new JList<>(users);
+        userList.setFixedCellHeight(20);
+        JScrollPane userScrollPane = new JScrollPane(userList);
+        userScrollPane.getViewport().addChangeListener(e -> {
+            if (userList.getLastVisibleIndex() >= users.getSize() - PagedListModel.PAGE_SIZE / 2) {
+                users.loadMore();
+            }
+        });
+        users.loadMore(); // 加载第一页
+
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("概览", new JScrollPane(overview));
+        tabs.addTab("全部用户", userScrollPane);
+        tabs.setPreferredSize(new Dimension(480, 420));
+        JOptionPane.showMessageDialog(this, tabs, "管理员面板", JOptionPane.PLAIN_MESSAGE);
+    }
+
+    // 概览的文本：运算最多的用户、最常用的表达式和每天的运算次数（以横条表示）
+    private static String formatUsageSummary(UsageSummary summary) {
+        StringBuilder sb = new StringBuilder("运算次数最多的用户\n");
+        for (UserUsage usage : summary.getTopUsers()) {
+            sb.append(String.format("  %-20s %8d%n", usage.getUsername(), usage.getCalculations()));
+        }
+        sb.append("\n最常用的表达式\n");
+        summary.getTopExpressions().forEach((expression, count) -> sb.append(String.format("  %-20s %8d%n", expression, count)));
+        sb.append("\n每天的运算次数\n");
+        long max = summary.getDaily().values().stream().mapToLong(Long::longValue).max().orElse(1);
+        summary.getDaily().forEach((day, count) ->
+                sb.append(String.format("  %s %8d %s%n", day, count, "█".repeat((int) Math.max(1, count * 30 / max)))));
+        return sb.toString();
     }
 
     // 显示修改密码对话框
@@ -159,11 +253,16 @@ public class View extends JFrame {
             String oldPassword = new String(oldPasswordField.getPassword());
             String newPassword = new String(newPasswordField.getPassword());
 
-            if (Controller.changePassword(oldPassword, newPassword)) {
-                JOptionPane.showMessageDialog(this, "密码修改成功！", "密码修改", JOptionPane.INFORMATION_MESSAGE);    // 显示密码修改成功的信息框
-            } else {
-                JOptionPane.showMessageDialog(this, "旧密码不正确", "密码错误", JOptionPane.ERROR_MESSAGE);
-            }
+            controller.changePassword(oldPassword, newPassword);
+        }
+    }
+
+    // 显示修改密码的结果
+    public void displayPasswordChangeResult(boolean changed) {
+        if (changed) {
+            JOptionPane.showMessageDialog(this, "密码修改成功！", "密码修改", JOptionPane.INFORMATION_MESSAGE);    // 显示密码修改成功的信息框
+        } else {
+            JOptionPane.showMessageDialog(this, "旧密码不正确", "密码错误", JOptionPane.ERROR_MESSAGE);
         }
     }
 
@@ -172,7 +271,7 @@ public class View extends JFrame {
 
         if (choice == JOptionPane.YES_OPTION) {
             // 用户选择是，执行注销操作
-            Controller.cancel();
+            controller.cancel();
             JOptionPane.showMessageDialog(null, "用户注销成功！", "提示", JOptionPane.INFORMATION_MESSAGE);
         } else {
             // 用户选择否或关闭对话框，取消注销操作
@@ -180,24 +279,24 @@ public class View extends JFrame {
         }
     }
 
-    // 显示计算历史记录
-    public void displayHistory(List<String> history) {
-        JTextArea historyArea = new JTextArea();
-        historyArea.setEditable(false);
+    // 显示计算历史记录，列表滚动到接近末尾时加载下一页
+    public void displayHistory(HistoryListModel history) {
+        JList<String> historyList = new JList<>(history);
+        historyList.setFixedCellHeight(20); // 固定行高，JList 无需测量每一行，只渲染可见部分
 
-        StringBuilder sb = new StringBuilder();
-        for (String entry : history) {
-            sb.append(entry).append("\n");
-        }
-        historyArea.setText(sb.toString());
-
-        JScrollPane scrollPane = new JScrollPane(historyArea);
+        JScrollPane scrollPane = new JScrollPane(historyList);
         scrollPane.setPreferredSize(new Dimension(400, 400));
+        scrollPane.getViewport().addChangeListener(e -> {
+            if (historyList.getLastVisibleIndex() >= history.getSize() - HistoryListModel.PAGE_SIZE / 2) {
+                history.loadMore();
+            }
+        });
+        history.loadMore(); // 加载第一页
 
         JButton clearButton = new JButton("清除");
         clearButton.addActionListener(e -> {
-            Controller.clearHistory();
-            historyArea.setText("");
+            controller.clearHistory();
+            history.clear();
         });
 
         JPanel panel = new JPanel(new BorderLayout());
@@ -0,0 +1,242 @@
+package com.bx.calculator;
+
+import java.util.*;
+
+// 工作表：会话中的命名变量，像电子表格的单元格一样由表达式定义，表达式可以引用其他变量（x = a * 2 + b）。
+// 变量之间的引用关系构成有向无环图，重新定义或删除一个变量时只重算直接或间接依赖它的变量：
+// 按拓扑顺序逐层计算，同一层的变量互不依赖，数量较多时在 fork-join 线程池上并行计算。
+// 变量可以先被引用后定义，定义之前引用它的变量的值为错误。变量的值按 double 计算，线程安全
+public final class Worksheet {
+    private static final int PARALLEL_THRESHOLD = 256;  // 同一层的变量数达到该值时并行计算
+    private static final Cell[] NO_CELLS = new Cell[0];
+
+    private final Map<String, Cell> cells = new HashMap<>();    // 已定义的变量和仅被引用的未定义变量
+    private int epoch;  // 每次遍历依赖图时递增，用于标记已访问的变量
+
+    // 是否为赋值语句：包含 '='
+    public static boolean isAssignment(String statement) {
+        return statement.indexOf('=') >= 0;
+    }
+
+    // 执行赋值语句 "名称 = 表达式"，返回变量的新值
+    public double assign(String statement) {
+        int equals = statement.indexOf('=');
+        String name = Model.normalize(statement.substring(0, equals));
+        if (!isName(name)) {
+            throw new IllegalArgumentException("无效的变量名: " + name);
+        }
+        return define(name, statement.substring(equals + 1));
+    }
+
+    // 定义或重新定义变量并重算依赖它的变量，返回该变量的值。
+    // 表达式有语法错误或会形成循环引用时抛出异常，工作表保持不变
+    public synchronized double define(String name, String expression) {
+        if (!isName(name)) {
+            throw new IllegalArgumentException("无效的变量名: " + name);
+        }
+        ExpressionPlan plan = Model.plan(Model.normalize(expression));  // 语法错误在此抛出
+        String[] names = plan.variables();
+        Cell cell = cells.get(name);
+        List<Cell> affected = cell == null ? null : dependentsOf(cell);
+        for (String input : names) {
+            Cell existing = cells.get(input);
+            if (input.equals(name) || affected != null && existing != null && existing.visited == epoch) {
+                throw new IllegalArgumentException("循环引用: " + name + " 与 " + input + " 相互依赖");
+            }
+        }
+
+        if (cell == null) {
+            cell = new Cell(name);
+            cells.put(name, cell);
+            affected = List.of(cell);
+        }
+        unlink(cell);
+        Cell[] inputs = new Cell[names.length];
+        for (int i = 0; i < names.length; i++) {
+            inputs[i] = cells.computeIfAbsent(names[i], Cell::new);
+            inputs[i].dependents.add(cell);
+        }
+        cell.expression = expression.trim();
+        cell.plan = plan;
+        cell.inputs = inputs;
+        recompute(affected);
+        return value(name);
+    }
+
+    // 删除变量的定义，返回变量是否存在；仍被其他变量引用时保留为未定义，并重算引用它的变量
+    public synchronized boolean remove(String name) {
+        Cell cell = cells.get(name);
+        if (cell == null || cell.expression == null) {
+            return false;
+        }
+        unlink(cell);
+        cell.expression = null;
+        cell.plan = null;
+        cell.inputs = NO_CELLS;
+        if (cell.dependents.isEmpty()) {
+            cells.remove(name);
+        } else {
+            recompute(dependentsOf(cell));
+        }
+        return true;
+    }
+
+    public synchronized void clear() {
+        cells.clear();
+    }
+
+    // 变量的当前值，变量未定义或依赖的变量无效时抛出 IllegalArgumentException
+    public synchronized double value(String name) {
+        Cell cell = cells.get(name);
+        if (cell == null) {
+            throw ExpressionScanner.undefined(name);
+        }
+        if (cell.error != null) {
+            throw new IllegalArgumentException(cell.error);
+        }
+        return cell.value;
+    }
+
+    // 按 plan.variables() 的顺序取出变量的值，作为 plan.evaluate(double[]) 的参数
+    public synchronized double[] bind(ExpressionPlan plan) {
+        String[] names = plan.variables();
+        double[] arguments = new double[names.length];
+        for (int i = 0; i < names.length; i++) {
+            arguments[i] = value(names[i]);
+        }
+        return arguments;
+    }
+
+    // 已定义的变量个数
+    public synchronized int size() {
+        int size = 0;
+        for (Cell cell : cells.values()) {
+            if (cell.expression != null) {
+                size++;
+            }
+        }
+        return size;
+    }
+
+    // 按名称排序的变量定义，每行为 "名称 = 表达式" 和值（或错误信息），以制表符分隔
+    public synchronized List<String> describe() {
+        List<String> lines = new ArrayList<>();
+        for (Cell cell : new TreeMap<>(cells).values()) {
+            if (cell.expression != null) {
+                lines.add(cell.name + " = " + cell.expression + "\t" + (cell.error == null ? String.valueOf(cell.value) : "Error: " + cell.error));
+            }
+        }
+        return lines;
+    }
+
+    private static boolean isName(String name) {
+        if (name.isEmpty() || !ExpressionScanner.isIdentifierStart(name.charAt(0))) {
+            return false;
+        }
+        for (int i = 1; i < name.length(); i++) {
+            if (!ExpressionScanner.isIdentifierPart(name.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // 断开 cell 与它引用的变量之间的边，不再被引用的未定义变量随之移除
+    private void unlink(Cell cell) {
+        for (Cell input : cell.inputs) {
+            input.dependents.remove(cell);
+            if (input.expression == null && input.dependents.isEmpty()) {
+                cells.remove(input.name);
+            }
+        }
+    }
+
+    // root 以及直接或间接依赖它的所有变量，返回后这些变量的 visited 等于 epoch。
+    // 结果列表同时用作遍历的工作队列，依赖链很长时也不会栈溢出
+    private List<Cell> dependentsOf(Cell root) {
+        int mark = ++epoch;
+        List<Cell> result = new ArrayList<>();
+        root.visited = mark;
+        result.add(root);
+        for (int i = 0; i < result.size(); i++) {
+            for (Cell dependent : result.get(i).dependents) {
+                if (dependent.visited != mark) {
+                    dependent.visited = mark;
+                    result.add(dependent);
+                }
+            }
+        }
+        return result;
+    }
+
+    // 按拓扑顺序逐层重算 affected 中的变量。affected 对依赖关系封闭，pending 记录每个变量在 affected 中尚未算完的输入个数，
+    // 归零时进入下一层
+    private static void recompute(List<Cell> affected) {
+        for (Cell cell : affected) {
+            cell.pending = 0;
+        }
+        for (Cell cell : affected) {
+            for (Cell dependent : cell.dependents) {
+                dependent.pending++;
+            }
+        }
+        List<Cell> level = new ArrayList<>();
+        for (Cell cell : affected) {
+            if (cell.pending == 0) {
+                level.add(cell);
+            }
+        }
+        while (!level.isEmpty()) {
+            if (level.size() >= PARALLEL_THRESHOLD) {
+                level.parallelStream().forEach(Cell::evaluate);
+            } else {
+                level.forEach(Cell::evaluate);
+            }
+            List<Cell> next = new ArrayList<>();
+            for (Cell cell : level) {
+                for (Cell dependent : cell.dependents) {
+                    if (--dependent.pending == 0) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            level = next;
+        }
+    }
+
+    // 一个变量。字段只在持有工作表的锁时修改，并行计算的同一层中每个变量只由一个线程写入
+    private static final class Cell {
+        final String name;
+        final Set<Cell> dependents = new LinkedHashSet<>(); // 直接引用本变量的变量
+        String expression;  // 定义变量的表达式，为 null 表示尚未定义，只是被其他变量引用
+        ExpressionPlan plan;
+        Cell[] inputs = NO_CELLS;   // 引用的变量，与 plan.variables() 的顺序一致
+        double value = Double.NaN;
+        String error;   // 无法计算的原因，为 null 表示 value 有效
+        int pending;    // 重算时尚未算完的输入个数
+        int visited;    // 最近一次被遍历时的 epoch
+
+        Cell(String name) {
+            this.name = name;
+            this.error = ExpressionScanner.undefined(name).getMessage();
+        }
+
+        void evaluate() {
+            value = Double.NaN;
+            if (expression == null) {
+                error = ExpressionScanner.undefined(name).getMessage();
+                return;
+            }
+            double[] arguments = new double[inputs.length];
+            for (int i = 0; i < inputs.length; i++) {
+                if (inputs[i].error != null) {
+                    error = inputs[i].error;    // 沿依赖链传递最初的错误
+                    return;
+                }
+                arguments[i] = inputs[i].value;
+            }
+            value = plan.evaluate(arguments);
+            error = null;
+        }
+    }
+}
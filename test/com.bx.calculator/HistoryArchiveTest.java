@@ -0,0 +1,171 @@
+package com.bx.calculator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+// 归档的往返：导出后导入另一个本地存储，记录的各列（结果按位比较、时间精确到纳秒）都不变；
+// 截断或损坏的文件只能以 IOException 拒绝
+class HistoryArchiveTest {
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripThroughLocalStorage() throws IOException {
+        Storage source = open("source.log");
+        List<HistoryRecord> records = new ArrayList<>();
+        Random random = new Random(20261018);
+        long millis = 1_700_000_000_000L;
+        for (int i = 0; i < 2 * HistoryArchive.BLOCK_SIZE + 500; i++) {
+            millis += random.nextInt(5000);
+            Timestamp timestamp = new Timestamp(millis);
+            timestamp.setNanos(timestamp.getNanos() + random.nextInt(1_000_000));   // 毫秒以下的部分
+            String username = i % 3 == 0 ? "李雷" : "alice";
+            records.add(new HistoryRecord(username, "√(" + (i % 50) + ")×π÷2", random.nextDouble() * 1e6 - 5e5, timestamp));
+        }
+        records.add(new HistoryRecord("alice", "0/0", Double.NaN, new Timestamp(millis + 1)));
+        records.add(new HistoryRecord("alice", "-0", -0.0, new Timestamp(millis + 2)));
+        source.insertUser(new User("alice", "a"));
+        source.insertUser(new User("李雷", "b"));
+        source.saveCalculations(records);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(records.size(), HistoryArchive.export(source, null, Channels.newChannel(out)));
+        Storage target = open("target.log");
+        assertEquals(records.size(), HistoryArchive.importInto(target, Channels.newChannel(new ByteArrayInputStream(out.toByteArray()))));
+        for (String username : List.of("alice", "李雷")) {
+            assertSameRecords(loadAll(source, username), loadAll(target, username));
+        }
+        source.close();
+        target.close();
+    }
+
+    // 块内时间倒退（差值为负）和 1970 年之前的时间
+    @Test
+    void roundTripKeepsNegativeDeltas() throws IOException {
+        List<HistoryRecord> records = new ArrayList<>();
+        long[] times = {5_000, 1_000, -86_400_000L * 365 * 20, 7_000, 7_000, -1};
+        for (int i = 0; i < times.length; i++) {
+            Timestamp timestamp = new Timestamp(times[i]);
+            timestamp.setNanos(timestamp.getNanos() + i * 1_234);
+            records.add(new HistoryRecord("bob", "表达式" + i, i, timestamp));
+        }
+        assertSameRecords(records, readAll(write(records)));
+    }
+
+    @Test
+    void truncatedArchiveIsRejected() throws IOException {
+        byte[] bytes = write(sample());
+        for (int length = 0; length < bytes.length; length++) {
+            byte[] truncated = Arrays.copyOf(bytes, length);
+            assertThrows(IOException.class, () -> readAll(truncated), "截断到 " + length + " 字节");
+        }
+    }
+
+    @Test
+    void corruptedHeaderIsRejected() throws IOException {
+        byte[] magic = write(sample());
+        magic[0] ^= 1;
+        assertThrows(IOException.class, () -> readAll(magic));
+        byte[] version = write(sample());
+        version[4] = 2;
+        assertThrows(IOException.class, () -> readAll(version));
+    }
+
+    // 块长度被改为负数或极大的值时报告损坏或不完整，不按该长度分配缓冲区
+    @Test
+    void corruptedBlockLengthIsRejected() throws IOException {
+        for (int length : new int[]{-1, Integer.MIN_VALUE, Integer.MAX_VALUE}) {
+            byte[] bytes = write(sample());
+            ByteBuffer.wrap(bytes).putInt(5, length);
+            assertThrows(IOException.class, () -> readAll(bytes), "块长度 " + length);
+        }
+    }
+
+    // 随机改写块内的字节：要么仍能读出，要么抛出 IOException，不能抛出其他异常
+    @Test
+    void corruptedBlockIsRejectedOrDecoded() throws IOException {
+        byte[] original = write(sample());
+        Random random = new Random(20261018);
+        for (int i = 0; i < 5000; i++) {
+            byte[] bytes = original.clone();
+            for (int j = 1 + random.nextInt(3); j > 0; j--) {
+                bytes[9 + random.nextInt(bytes.length - 13)] = (byte) random.nextInt(256);   // 保留文件头、块长度和结束标记
+            }
+            try {
+                readAll(bytes);
+            } catch (IOException expected) {
+                // 损坏被发现
+            }
+        }
+    }
+
+    private Storage open(String name) {
+        Storage storage = new LocalFileStorage(directory.resolve(name));
+        storage.initialize();
+        return storage;
+    }
+
+    private static List<HistoryRecord> sample() {
+        List<HistoryRecord> records = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            records.add(new HistoryRecord(i % 2 == 0 ? "alice" : "bob", i % 5 + "+1", i % 5 + 1, new Timestamp(1_000_000L + i * 37L)));
+        }
+        return records;
+    }
+
+    private static byte[] write(List<HistoryRecord> records) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        HistoryArchive.Writer writer = new HistoryArchive.Writer(Channels.newChannel(out));
+        writer.write(records);
+        writer.finish();
+        return out.toByteArray();
+    }
+
+    private static List<HistoryRecord> readAll(byte[] bytes) throws IOException {
+        HistoryArchive.Reader reader = new HistoryArchive.Reader(Channels.newChannel(new ByteArrayInputStream(bytes)));
+        List<HistoryRecord> records = new ArrayList<>();
+        List<HistoryRecord> block;
+        while ((block = reader.next()) != null) {
+            records.addAll(block);
+        }
+        return records;
+    }
+
+    private static List<HistoryRecord> loadAll(Storage storage, String username) {
+        List<HistoryRecord> records = new ArrayList<>();
+        List<HistoryRecord> page = storage.loadCalculationsAscending(username, null, 1000);
+        while (!page.isEmpty()) {
+            records.addAll(page);
+            page = storage.loadCalculationsAscending(username, page.get(page.size() - 1), 1000);
+        }
+        return records;
+    }
+
+    // 编号由存储后端分配，不比较
+    private static void assertSameRecords(List<HistoryRecord> expected, List<HistoryRecord> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            HistoryRecord a = expected.get(i);
+            HistoryRecord b = actual.get(i);
+            assertEquals(a.getUsername(), b.getUsername(), "第 " + i + " 条");
+            assertEquals(a.getExpression(), b.getExpression(), "第 " + i + " 条");
+            assertEquals(Double.doubleToRawLongBits(a.getResult()), Double.doubleToRawLongBits(b.getResult()), "第 " + i + " 条");
+            assertEquals(a.getTimestamp(), b.getTimestamp(), "第 " + i + " 条");
+        }
+    }
+}
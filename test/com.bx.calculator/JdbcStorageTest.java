@@ -0,0 +1,32 @@
+package com.bx.calculator;
+
+import java.sql.SQLException;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+// 需要 -Dcalc.test.jdbc.url 指向专用的测试库，每个测试前删除全部表，由 initialize 重新创建
+class JdbcStorageTest extends StorageContractTest {
+    @Override
+    protected Storage createStorage() throws SQLException {
+        ConnectionPool pool = connectionPool();
+        try (ConnectionPool.PooledConnection connection = pool.borrow();
+             Statement statement = connection.getConnection().createStatement()) {
+            statement.executeUpdate("DROP TABLE IF EXISTS users, calculations, user_usage, expression_usage, daily_usage");
+        }
+        return new JdbcStorage(pool);
+    }
+
+    // 关闭存储会关闭连接池，重新打开时新建连接池，不删除表
+    @Override
+    protected Storage reopenStorage() {
+        return new JdbcStorage(connectionPool());
+    }
+
+    private static ConnectionPool connectionPool() {
+        String url = System.getProperty("calc.test.jdbc.url");
+        assumeTrue(url != null && !url.isEmpty(), "未指定 calc.test.jdbc.url");
+        return new ConnectionPool(url, System.getProperty("calc.test.jdbc.user", "root"),
+                System.getProperty("calc.test.jdbc.password", ""), 4, 5000);
+    }
+}
@@ -0,0 +1,74 @@
+package com.bx.calculator;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Timestamp;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LocalFileStorageTest extends StorageContractTest {
+    @TempDir
+    Path directory;
+
+    @Override
+    protected Storage createStorage() {
+        return new LocalFileStorage(directory.resolve("calc.log"));
+    }
+
+    @Test
+    void reopenReplaysLog() {
+        storage.insertUser(new User("alice", "old"));
+        storage.updatePassword("alice", "new");
+        storage.saveCalculations(List.of(new HistoryRecord("alice", "1+1", 2, new Timestamp(1000))));
+        storage.close();
+
+        storage = createStorage();
+        storage.initialize();
+        assertEquals("new", storage.findUser("alice").getPassword());
+        assertEquals(1, storage.loadCalculations("alice", null, 10).size());
+        assertEquals(1, storage.loadUserUsage(null, 10).get(0).getCalculations());
+    }
+
+    @Test
+    void secondInstanceOnSameFileIsRejected() {
+        Storage second = createStorage();
+        assertThrows(StorageException.class, second::initialize);
+        storage.close();
+        second.initialize();    // 第一个实例关闭后可以打开
+        second.close();
+    }
+
+    // 崩溃时最后一条记录已写入内容、尚未写入长度字段：重放时忽略它，之后写入的较短记录不能让残留的字节被当作记录
+    @Test
+    void tornRecordIsDiscardedAndOverwrittenSafely() throws Exception {
+        storage.saveCalculations(List.of(new HistoryRecord("alice", "1+".repeat(100) + "1", 101, new Timestamp(1000))));
+        storage.close();
+        try (FileChannel channel = FileChannel.open(directory.resolve("calc.log"), StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.allocate(4), 0);   // 第一条记录的长度字段还原为 0
+        }
+
+        storage = createStorage();
+        storage.initialize();
+        assertEquals(0, storage.loadCalculations("alice", null, 10).size());
+        storage.deleteCalculations("xxxxx");
+        storage.close();
+
+        storage = createStorage();
+        storage.initialize();
+        assertEquals(0, storage.loadCalculations("alice", null, 10).size());
+        storage.insertUser(new User("bob", "secret"));
+        storage.close();
+
+        storage = createStorage();
+        storage.initialize();
+        assertNotNull(storage.findUser("bob"));
+    }
+}
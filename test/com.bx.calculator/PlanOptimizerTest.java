@@ -0,0 +1,103 @@
+package com.bx.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+// 优化后的计划必须与未优化的计划逐位相同（doubleToRawLongBits），包括 -0、NaN 和无穷大；
+// 编译或求值抛出异常时，两者必须抛出同一类型的异常。
+// 第二层编译结果与解释执行比较时不区分 NaN 的位模式：JIT 可能交换可交换运算的操作数，得到符号不同的 NaN
+class PlanOptimizerTest {
+    private static final double[] EDGE_VALUES = {
+            0.0, -0.0, 1.0, -1.0, 2.0, 0.5, 3.0, 7.25, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY,
+            Double.MIN_VALUE, Double.MIN_NORMAL, Double.MIN_NORMAL * 3, 0x1.8p-1070, Double.MAX_VALUE, 1e-300, 1e300, 20.0, 171.0
+    };
+    private static final String[] CONSTANTS = {"0", "1", "2", "3", "0.5", "0.25", "4", "1024", "0.1", "10", "17"};
+    private static final String[] VARIABLES = {"x", "y"};
+
+    @Test
+    void edgeCases() {
+        String[] expressions = {
+                "x", "x*1", "1*x", "x/1", "x-0", "x+0", "0+x", "x^1", "x^0", "0^0", "x^2", "x^3", "x^0.5",
+                "x/2", "x/4", "x/1024", "x/0.5", "x/0.25", "x/3", "x/0", "0/0", "1/0", "0-0", "0*x", "x*0",
+                "x/1024/1024/1024/1024", "(x/1024)*1024", "y/2+y/2", "x/2^10",
+                "x!", "x!+x!", "x!*x!", "(x+1)!*(x+1)!-(x+1)!", "(x+y)*(x+y)+(x+y)", "√x+√x", "√(x*x)",
+                "x*y+x*y", "(x-y)/(x-y)", "x^y", "y^x*y^x", "2^10*x", "(1+2)*x", "3!*x", "(0-0)*x", "x-x", "x/x"
+        };
+        for (String expression : expressions) {
+            for (double x : EDGE_VALUES) {
+                for (double y : EDGE_VALUES) {
+                    assertSameResult(expression, x, y);
+                }
+            }
+        }
+    }
+
+    @Test
+    void generatedCorpus() {
+        Random random = new Random(20261018);
+        for (int i = 0; i < 20000; i++) {
+            String expression = generate(random, 4);
+            for (int j = 0; j < 4; j++) {
+                assertSameResult(expression, EDGE_VALUES[random.nextInt(EDGE_VALUES.length)], EDGE_VALUES[random.nextInt(EDGE_VALUES.length)]);
+            }
+        }
+    }
+
+    // 随机表达式：常量、变量、二元运算、开方、阶乘和括号，重复使用子表达式以触发公共子表达式合并
+    private static String generate(Random random, int depth) {
+        int choice = depth == 0 ? random.nextInt(2) : random.nextInt(9);
+        return switch (choice) {
+            case 0 -> CONSTANTS[random.nextInt(CONSTANTS.length)];
+            case 1 -> VARIABLES[random.nextInt(VARIABLES.length)];
+            case 2 -> "√" + parenthesize(generate(random, depth - 1));
+            case 3 -> parenthesize(generate(random, depth - 1)) + "!";
+            case 4 -> {
+                String shared = parenthesize(generate(random, depth - 1));
+                yield shared + "+" + shared + "*" + shared;
+            }
+            default -> parenthesize(generate(random, depth - 1)) + "+-*/^".charAt(random.nextInt(5)) + parenthesize(generate(random, depth - 1));
+        };
+    }
+
+    private static String parenthesize(String expression) {
+        return "(" + expression + ")";
+    }
+
+    private static void assertSameResult(String expression, double x, double y) {
+        String plain = outcome(expression, false, x, y);
+        String optimized = outcome(expression, true, false, x, y);
+        assertEquals(plain, optimized, () -> expression + " x=" + x + " y=" + y);
+        assertEquals(anyNaN(plain), anyNaN(outcome(expression, false, true, x, y)), () -> "第二层 " + expression + " x=" + x + " y=" + y);
+        assertEquals(anyNaN(plain), anyNaN(outcome(expression, true, true, x, y)), () -> "优化后第二层 " + expression + " x=" + x + " y=" + y);
+    }
+
+    private static String anyNaN(String outcome) {
+        boolean nan = outcome.matches("[0-9a-f]+") && Double.isNaN(Double.longBitsToDouble(Long.parseUnsignedLong(outcome, 16)));
+        return nan ? "NaN" : outcome;
+    }
+
+    private static String outcome(String expression, boolean optimize, double x, double y) {
+        return outcome(expression, optimize, false, x, y);
+    }
+
+    // 结果的原始位模式，或抛出的异常类型；compiled 为 true 时调用 PlanCompiler 的编译结果
+    private static String outcome(String expression, boolean optimize, boolean compiled, double x, double y) {
+        try {
+            ExpressionPlan plan = ExpressionPlan.compile(expression, optimize);
+            String[] names = plan.variables();
+            double[] arguments = new double[names.length];
+            for (int i = 0; i < names.length; i++) {
+                arguments[i] = names[i].equals("x") ? x : y;
+            }
+            double result = compiled ? (double) PlanCompiler.compile(plan).invokeExact(arguments) : plan.interpret(arguments);
+            return Long.toHexString(Double.doubleToRawLongBits(result));
+        } catch (RuntimeException e) {
+            return e.getClass().getName();
+        } catch (Throwable e) {
+            throw new AssertionError(e);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.bx.calculator;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.math.MathContext;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// 整数与 BigInteger.toString(radix) 逐字比较；小数检查类注释中承诺的精度：除前导 0 外至少 ceil(k·log(from)/log(to)) + 1 位，向下截断
+class RadixConverterTest {
+    @Test
+    void fractionKeepsPromisedPrecision() {
+        assertEquals("0.00011001", RadixConverter.convert("0.1", 10, 2));
+    }
+
+    @Test
+    void integersMatchBigInteger() throws Exception {
+        Random random = new Random(20261018);
+        for (int i = 0; i < 3000; i++) {
+            int from = 2 + random.nextInt(35);
+            int to = 2 + random.nextInt(35);
+            BigInteger value = new BigInteger(1 + random.nextInt(i < 2950 ? 400 : 40000), random);
+            if (random.nextBoolean()) {
+                value = value.negate();
+            }
+            String input = value.toString(from);
+            String expected = value.toString(to);
+            assertEquals(expected, RadixConverter.convert(input, from, to), input + " " + from + "->" + to);
+            StringWriter out = new StringWriter();
+            RadixConverter.convert(new StringReader(input), from, out, to);
+            assertEquals(expected, out.toString(), "stream " + input + " " + from + "->" + to);
+        }
+    }
+
+    @Test
+    void fractionsAreTruncatedToPromisedPrecision() {
+        Random random = new Random(20261018);
+        for (int i = 0; i < 2000; i++) {
+            int from = 2 + random.nextInt(35);
+            int to = 2 + random.nextInt(35);
+            int k = 1 + random.nextInt(20);
+            StringBuilder digits = new StringBuilder();
+            for (int j = 0; j < k; j++) {
+                digits.append(Character.forDigit(random.nextInt(from), from));
+            }
+            BigDecimal exact = fraction(new BigInteger(digits.toString(), from), from, k);
+            if (exact.signum() == 0) {
+                continue;
+            }
+            String input = "0." + digits;
+            String output = RadixConverter.convert(input, from, to);
+            assertTrue(output.startsWith("0."), input + " " + from + "->" + to + " = " + output);
+            String outDigits = output.substring(2);
+            BigDecimal converted = fraction(new BigInteger(outDigits, to), to, outDigits.length());
+            int leadingZeros = 0;
+            while (outDigits.charAt(leadingZeros) == '0') {
+                leadingZeros++;
+            }
+            int required = (int) Math.ceil(k * Math.log(from) / Math.log(to)) + 1;
+            BigDecimal unit = fraction(BigInteger.ONE, to, leadingZeros + required);
+            assertTrue(converted.compareTo(exact) <= 0 && exact.subtract(converted).compareTo(unit) < 0,
+                    input + " " + from + "->" + to + " = " + output);
+        }
+    }
+
+    // numerator / base^digits
+    private static BigDecimal fraction(BigInteger numerator, int base, int digits) {
+        return new BigDecimal(numerator).divide(new BigDecimal(BigInteger.valueOf(base).pow(digits)), MathContext.DECIMAL128);
+    }
+}
@@ -0,0 +1,287 @@
+package com.bx.calculator;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+// Storage 接口的约定，每个存储后端继承一次，保证各后端行为一致。
+// 时间取整到秒（MySQL 的 TIMESTAMP 不保存秒以下的部分），同一用户的记录时间各不相同
+abstract class StorageContractTest {
+    protected Storage storage;
+    private final LocalDateTime base = LocalDateTime.now().truncatedTo(ChronoUnit.SECONDS).minusHours(1);
+
+    // 返回一个空的、尚未初始化的存储后端
+    protected abstract Storage createStorage() throws Exception;
+
+    // 在已关闭的存储后端的数据上重新打开，返回尚未初始化的实例；createStorage 会清空数据的后端需要覆盖
+    protected Storage reopenStorage() throws Exception {
+        return createStorage();
+    }
+
+    private void reopen() throws Exception {
+        storage.close();
+        storage = reopenStorage();
+        storage.initialize();
+    }
+
+    @BeforeEach
+    void setUp() throws Exception {
+        storage = createStorage();
+        storage.initialize();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (storage != null) {
+            storage.close();
+        }
+    }
+
+    private HistoryRecord record(String username, String expression, double result, int seconds) {
+        return new HistoryRecord(username, expression, result, Timestamp.valueOf(base.plusSeconds(seconds)));
+    }
+
+    // 为 username 写入 count 条记录，第 i 条的表达式为 "i+0"、结果为 i，时间依次递增
+    private void saveCalculations(String username, int count) {
+        List<HistoryRecord> records = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            records.add(record(username, i + "+0", i, i));
+        }
+        storage.saveCalculations(records);
+    }
+
+    @Test
+    void insertAndFindUser() {
+        assertNull(storage.findUser("alice"));
+        assertTrue(storage.insertUser(new User("alice", "secret")));
+        User user = storage.findUser("alice");
+        assertNotNull(user);
+        assertEquals("alice", user.getUsername());
+        assertEquals("secret", user.getPassword());
+    }
+
+    @Test
+    void insertDuplicateUserIsRejected() {
+        assertTrue(storage.insertUser(new User("alice", "first")));
+        assertFalse(storage.insertUser(new User("alice", "second")));
+        assertEquals("first", storage.findUser("alice").getPassword());
+    }
+
+    @Test
+    void findUserIsExact() {
+        storage.insertUser(new User("alice", "secret"));
+        assertNull(storage.findUser("Alice"));
+        assertNull(storage.findUser("ALICE"));
+        assertNull(storage.findUser("alice "));
+    }
+
+    @Test
+    void updatePassword() {
+        storage.insertUser(new User("alice", "old"));
+        storage.updatePassword("alice", "new");
+        assertEquals("new", storage.findUser("alice").getPassword());
+    }
+
+    @Test
+    void deleteUser() {
+        storage.insertUser(new User("alice", "secret"));
+        assertTrue(storage.deleteUser("alice"));
+        assertNull(storage.findUser("alice"));
+        assertFalse(storage.deleteUser("alice"));
+        assertTrue(storage.insertUser(new User("alice", "again")));  // 删除后可以重新注册
+    }
+
+    @Test
+    void loadCalculationsPagesNewestFirst() {
+        saveCalculations("alice", 25);
+        saveCalculations("bob", 3);
+        List<Double> results = new ArrayList<>();
+        List<HistoryRecord> page = storage.loadCalculations("alice", null, 10);
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 10);
+            for (HistoryRecord record : page) {
+                assertEquals("alice", record.getUsername());
+                results.add(record.getResult());
+            }
+            page = storage.loadCalculations("alice", page.get(page.size() - 1), 10);
+        }
+        assertEquals(25, results.size());
+        for (int i = 0; i < 25; i++) {
+            assertEquals(24 - i, results.get(i));
+        }
+    }
+
+    @Test
+    void loadCalculationsAscendingPagesOldestFirst() {
+        saveCalculations("alice", 25);
+        List<HistoryRecord> all = new ArrayList<>();
+        List<HistoryRecord> page = storage.loadCalculationsAscending("alice", null, 7);
+        while (!page.isEmpty()) {
+            all.addAll(page);
+            page = storage.loadCalculationsAscending("alice", page.get(page.size() - 1), 7);
+        }
+        assertEquals(25, all.size());
+        for (int i = 0; i < 25; i++) {
+            HistoryRecord record = all.get(i);
+            assertEquals(i + "+0", record.getExpression());
+            assertEquals(i, record.getResult());
+            assertEquals(Timestamp.valueOf(base.plusSeconds(i)), record.getTimestamp());
+        }
+    }
+
+    // 写入顺序与时间顺序不同（如导入）时仍按 (时间, 编号) 分页；时间相同的记录按写入顺序排列。
+    // 结果为记录在时间顺序中的位置
+    @Test
+    void loadCalculationsPagesInTimeOrderWhenWrittenOutOfOrder() {
+        storage.saveCalculations(List.of(record("alice", "a", 6, 5), record("alice", "b", 1, 1), record("alice", "c", 4, 3)));
+        storage.saveCalculations(List.of(record("alice", "d", 2, 1), record("alice", "e", 0, 0), record("alice", "f", 5, 4), record("alice", "g", 3, 2)));
+        List<Double> ascending = new ArrayList<>();
+        List<HistoryRecord> page = storage.loadCalculationsAscending("alice", null, 2);
+        while (!page.isEmpty()) {
+            page.forEach(record -> ascending.add(record.getResult()));
+            page = storage.loadCalculationsAscending("alice", page.get(page.size() - 1), 2);
+        }
+        assertEquals(List.of(0.0, 1.0, 2.0, 3.0, 4.0, 5.0, 6.0), ascending);
+        List<Double> descending = new ArrayList<>();
+        page = storage.loadCalculations("alice", null, 2);
+        while (!page.isEmpty()) {
+            page.forEach(record -> descending.add(record.getResult()));
+            page = storage.loadCalculations("alice", page.get(page.size() - 1), 2);
+        }
+        assertEquals(List.of(6.0, 5.0, 4.0, 3.0, 2.0, 1.0, 0.0), descending);
+    }
+
+    @Test
+    void loadCalculationsOfUnknownUserIsEmpty() {
+        assertTrue(storage.loadCalculations("nobody", null, 10).isEmpty());
+        assertTrue(storage.loadCalculationsAscending("nobody", null, 10).isEmpty());
+    }
+
+    @Test
+    void deleteCalculationsKeepsUsage() {
+        storage.insertUser(new User("alice", "secret"));
+        saveCalculations("alice", 5);
+        storage.deleteCalculations("alice");
+        assertTrue(storage.loadCalculations("alice", null, 10).isEmpty());
+        List<UserUsage> users = storage.loadUserUsage(null, 10);
+        assertEquals(1, users.size());
+        assertEquals(5, users.get(0).getCalculations());
+    }
+
+    @Test
+    void usageSummaryCountsCalculations() {
+        storage.insertUser(new User("alice", "a"));
+        storage.insertUser(new User("bob", "b"));
+        storage.saveCalculations(List.of(
+                record("alice", "1+1", 2, 0),
+                record("alice", "1+1", 2, 1),
+                record("alice", "2*3", 6, 2),
+                record("bob", "1+1", 2, 3)));
+        storage.saveCalculations(List.of(record("alice", "1+1", 2, 4)));
+
+        UsageSummary summary = storage.loadUsageSummary(10, 30);
+        assertEquals(2, summary.getTopUsers().size());
+        UserUsage top = summary.getTopUsers().get(0);
+        assertEquals("alice", top.getUsername());
+        assertEquals(4, top.getCalculations());
+        assertEquals(Timestamp.valueOf(base.plusSeconds(4)), top.getLastCalculation());
+        assertEquals(1, summary.getTopUsers().get(1).getCalculations());
+
+        assertEquals(List.of("1+1", "2*3"), new ArrayList<>(summary.getTopExpressions().keySet()));
+        assertEquals(Map.of("1+1", 4L, "2*3", 1L), summary.getTopExpressions());
+
+        long daily = 0;
+        for (long count : summary.getDaily().values()) {
+            daily += count;
+        }
+        assertEquals(5, daily);
+    }
+
+    @Test
+    void usageSummaryLimit() {
+        for (int i = 0; i < 5; i++) {
+            storage.insertUser(new User("user" + i, "p"));
+            saveCalculations("user" + i, i + 1);
+        }
+        UsageSummary summary = storage.loadUsageSummary(2, 30);
+        assertEquals(2, summary.getTopUsers().size());
+        assertEquals("user4", summary.getTopUsers().get(0).getUsername());
+        assertEquals("user3", summary.getTopUsers().get(1).getUsername());
+        assertEquals(2, summary.getTopExpressions().size());
+    }
+
+    @Test
+    void deleteUserRemovesUsage() {
+        storage.insertUser(new User("alice", "a"));
+        storage.insertUser(new User("bob", "b"));
+        saveCalculations("alice", 3);
+        saveCalculations("bob", 1);
+        storage.deleteUser("alice");
+        List<UserUsage> users = storage.loadUserUsage(null, 10);
+        assertEquals(1, users.size());
+        assertEquals("bob", users.get(0).getUsername());
+        List<UserUsage> top = storage.loadUsageSummary(10, 30).getTopUsers();
+        assertEquals(1, top.size());
+        assertEquals("bob", top.get(0).getUsername());
+    }
+
+    // 删除全部用户后用户统计为空，重新初始化不能因此再次汇总运算记录
+    @Test
+    void reopenAfterDeletingAllUsersKeepsUsage() throws Exception {
+        storage.insertUser(new User("alice", "a"));
+        storage.saveCalculations(List.of(record("alice", "1+1", 2, 0), record("alice", "1+1", 2, 1), record("alice", "2*3", 6, 2)));
+        storage.deleteUser("alice");
+        for (int i = 0; i < 2; i++) {
+            reopen();
+            UsageSummary summary = storage.loadUsageSummary(10, 30);
+            assertTrue(summary.getTopUsers().isEmpty());
+            assertTrue(storage.loadUserUsage(null, 10).isEmpty());
+            assertEquals(Map.of("1+1", 2L, "2*3", 1L), summary.getTopExpressions());
+        }
+        storage.insertUser(new User("bob", "b"));
+        storage.saveCalculations(List.of(record("bob", "1+1", 2, 3)));
+        reopen();
+        assertEquals(Map.of("1+1", 3L, "2*3", 1L), storage.loadUsageSummary(10, 30).getTopExpressions());
+        assertEquals(1, storage.loadUserUsage(null, 10).get(0).getCalculations());
+    }
+
+    @Test
+    void loadUserUsagePagesByName() {
+        for (int i = 0; i < 12; i++) {
+            storage.insertUser(new User(String.format("user%02d", 11 - i), "p"));
+        }
+        saveCalculations("user03", 2);
+        List<String> names = new ArrayList<>();
+        Map<String, Long> counts = new HashMap<>();
+        List<UserUsage> page = storage.loadUserUsage(null, 5);
+        while (!page.isEmpty()) {
+            assertTrue(page.size() <= 5);
+            for (UserUsage usage : page) {
+                names.add(usage.getUsername());
+                counts.put(usage.getUsername(), usage.getCalculations());
+            }
+            page = storage.loadUserUsage(page.get(page.size() - 1).getUsername(), 5);
+        }
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            expected.add(String.format("user%02d", i));
+        }
+        assertEquals(expected, names);
+        assertEquals(2, counts.get("user03").longValue());
+        assertEquals(0, counts.get("user00").longValue());
+    }
+}